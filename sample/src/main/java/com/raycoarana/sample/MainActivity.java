@@ -45,6 +45,12 @@ public class MainActivity extends AppCompatActivity implements MainView {
         mPresenter.onInitialize(this);
     }
 
+    @Override
+    protected void onDestroy() {
+        mPresenter.onDestroy();
+        super.onDestroy();
+    }
+
     private void injectMembers() {
         ((SampleApplication) getApplication()).getApplicationComponent().inject(this);
     }
@@ -16,6 +16,7 @@
 package com.raycoarana.sample;
 
 import com.raycoarana.sample.usecase.HardWorkCommand;
+import com.raycoarana.tesela.Tesela;
 import com.raycoarana.tesela.annotations.Background;
 import com.raycoarana.tesela.annotations.UI;
 import com.raycoarana.tesela.annotations.ViewReference;
@@ -41,13 +42,17 @@ public class MainPresenter {
         loadData();
     }
 
+    public void onDestroy() {
+        Tesela.cancelPresenter(this);
+    }
+
     @UI
     protected void showLoading() {
         mView.showLoading();
         mView.hideMessage();
     }
 
-    @Background
+    @Background(pool = Background.IO)
     protected void loadData() {
         String result = mHardWorkCommand.execute();
         showMessage(result);
@@ -15,45 +15,15 @@
 */
 package com.raycoarana.sample.tesela;
 
-import android.os.Handler;
-import android.os.Looper;
-
-import com.raycoarana.tesela.TeselaExecutor;
-
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import com.raycoarana.tesela.executor.LooperTeselaExecutor;
 
 import javax.inject.Inject;
 
-public class SampleTeselaExecutor implements TeselaExecutor {
-
-    private final Handler mMainThreadHandler;
-    private final Executor mBackgroundExecutor;
+public class SampleTeselaExecutor extends LooperTeselaExecutor {
 
     @Inject
     public SampleTeselaExecutor() {
-        mMainThreadHandler = new Handler();
-        mBackgroundExecutor = Executors.newSingleThreadExecutor();
-    }
-
-    @Override
-    public boolean isMainCurrentThread() {
-        return Looper.myLooper() == Looper.getMainLooper();
-    }
-
-    @Override
-    public void executeInUIThread(Runnable runnable) {
-        mMainThreadHandler.post(runnable);
-    }
-
-    @Override
-    public void executeInBackground(Runnable runnable) {
-        executeInBackground(runnable, null);
-    }
-
-    @Override
-    public void executeInBackground(Runnable runnable, String tag) {
-        mBackgroundExecutor.execute(runnable);
+        super(new HandlerMainLooper());
     }
 
 }
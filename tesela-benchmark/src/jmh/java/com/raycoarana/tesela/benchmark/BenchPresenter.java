@@ -0,0 +1,76 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.TeselaFuture;
+import com.raycoarana.tesela.annotations.Background;
+import com.raycoarana.tesela.annotations.Cached;
+import com.raycoarana.tesela.annotations.UI;
+import com.raycoarana.tesela.annotations.ViewReference;
+
+import java.util.concurrent.CountDownLatch;
+
+public class BenchPresenter {
+
+    static final long CONTENT_COMPUTATION_MS = 50;
+
+    @ViewReference
+    protected WeakBenchView mView;
+
+    protected long mCounter;
+
+    public BenchPresenter attach(BenchView view) {
+        mView = WeakBenchView.of(view);
+        return this;
+    }
+
+    @Background
+    protected void compute(int value) {
+        mCounter += value;
+    }
+
+    @UI
+    protected void render(int value) {
+        mView.render(value);
+    }
+
+    @Background
+    protected void ping(CountDownLatch latch) {
+        pong(latch);
+    }
+
+    @UI
+    protected void pong(CountDownLatch latch) {
+        latch.countDown();
+    }
+
+    @Background
+    @Cached(ttlMs = 1, persistent = true, deliverTo = "showContent")
+    protected TeselaFuture<String> loadContent(String section) {
+        try {
+            Thread.sleep(CONTENT_COMPUTATION_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return TeselaFuture.completed("Content of " + section);
+    }
+
+    @UI
+    protected void showContent(String content) {
+        mView.showContent(content);
+    }
+
+}
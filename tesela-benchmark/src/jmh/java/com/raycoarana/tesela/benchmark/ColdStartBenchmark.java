@@ -0,0 +1,118 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaFuture;
+import com.raycoarana.tesela.executor.JvmMainLooper;
+import com.raycoarana.tesela.executor.LooperTeselaExecutor;
+import com.raycoarana.tesela.store.DiskResultStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to first content of a {@code @Cached} presenter method after a simulated process restart:
+ * the in-memory caches are cleared and the result store is reopened before every invocation. With
+ * the persistent tier the last stored result is shown while the fresh one is computed, without it
+ * the whole computation has to finish first.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+
+    private static final String SECTION = "home";
+
+    @Param({"false", "true"})
+    public boolean persistent;
+
+    private JvmMainLooper mLooper;
+    private File mStoreFile;
+    private DiskResultStore mStore;
+    private CountingView mView;
+    private BenchPresenter mPresenter;
+    private volatile TeselaFuture<String> mContent;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException, ExecutionException {
+        mLooper = new JvmMainLooper();
+        Tesela.init(new LooperTeselaExecutor(mLooper));
+        mStoreFile = File.createTempFile("tesela-cold-start", ".store");
+        restart();
+        loadContent();
+        awaitComputation();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mStore != null) {
+            mStore.close();
+        }
+        mLooper.quit();
+        mStoreFile.delete();
+    }
+
+    @Setup(Level.Invocation)
+    public void restart() {
+        if (mStore != null) {
+            mStore.close();
+        }
+        mStore = persistent ? new DiskResultStore(mStoreFile) : null;
+        Tesela.setResultStore(mStore);
+        Tesela.clearCaches();
+        mView = new CountingView();
+        mPresenter = new TeselaBenchPresenter().attach(mView);
+    }
+
+    @TearDown(Level.Invocation)
+    public void awaitComputation() throws InterruptedException, ExecutionException {
+        while (mContent == null) {
+            Thread.sleep(1);
+        }
+        mContent.get();
+        mContent = null;
+    }
+
+    @Benchmark
+    public void timeToFirstContent() throws InterruptedException {
+        loadContent();
+        mView.awaitContent();
+    }
+
+    private void loadContent() {
+        mLooper.post(new Runnable() {
+            @Override
+            public void run() {
+                mContent = mPresenter.loadContent(SECTION);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class CountingView implements BenchView {
+
+    private int mRendered;
+    private volatile CountDownLatch mContentShown = new CountDownLatch(1);
+
+    @Override
+    public void render(int value) {
+        mRendered += value;
+    }
+
+    @Override
+    public void showContent(String content) {
+        mContentShown.countDown();
+    }
+
+    @Override
+    public int getRendered() {
+        return mRendered;
+    }
+
+    public void awaitContent() throws InterruptedException {
+        if (!mContentShown.await(10, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Content was never shown");
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.Tesela;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of going through the generated {@code @Background} and {@code @UI} wrappers compared with
+ * calling the presenter directly. Everything runs inline, so no thread hop is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DispatchOverheadBenchmark {
+
+    @Param({"true", "false"})
+    public boolean onMainThread;
+
+    private CountingView mView;
+    private BenchPresenter mDirect;
+    private BenchPresenter mGenerated;
+
+    @Setup
+    public void setUp() {
+        Tesela.init(new InlineTeselaExecutor(onMainThread));
+        mView = new CountingView();
+        mDirect = new BenchPresenter().attach(mView);
+        mGenerated = new TeselaBenchPresenter().attach(mView);
+    }
+
+    @Benchmark
+    public long backgroundDirect() {
+        mDirect.compute(1);
+        return mDirect.mCounter;
+    }
+
+    @Benchmark
+    public long backgroundWrapper() {
+        mGenerated.compute(1);
+        return mGenerated.mCounter;
+    }
+
+    @Benchmark
+    public int uiDirect() {
+        mDirect.render(1);
+        return mDirect.mView.getRendered();
+    }
+
+    @Benchmark
+    public int uiWrapper() {
+        mGenerated.render(1);
+        return mGenerated.mView.getRendered();
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaExecutor;
+import com.raycoarana.tesela.executor.JvmMainLooper;
+import com.raycoarana.tesela.executor.LooperTeselaExecutor;
+import com.raycoarana.tesela.executor.PriorityExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end latency of a main to background to main round trip through the generated presenter
+ * for each executor strategy. The round trip starts with a message posted to the main looper, as
+ * a click would, and ends when the {@code @UI} method runs.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HopLatencyBenchmark {
+
+    @Param({"priority", "fifo", "plain"})
+    public String executor;
+
+    private JvmMainLooper mLooper;
+    private PriorityExecutor mPriorityWorkers;
+    private ExecutorService mWorkers;
+    private CountingView mView;
+    private BenchPresenter mPresenter;
+
+    @Setup
+    public void setUp() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        mLooper = new JvmMainLooper();
+        TeselaExecutor teselaExecutor;
+        if ("priority".equals(executor)) {
+            mPriorityWorkers = new PriorityExecutor(threads);
+            teselaExecutor = new LooperTeselaExecutor(mLooper, mPriorityWorkers);
+        } else if ("fifo".equals(executor)) {
+            mWorkers = Executors.newFixedThreadPool(threads);
+            teselaExecutor = new LooperTeselaExecutor(mLooper, mWorkers);
+        } else {
+            mWorkers = Executors.newFixedThreadPool(threads);
+            teselaExecutor = new PlainTeselaExecutor(mLooper, mWorkers);
+        }
+        Tesela.init(teselaExecutor);
+        mView = new CountingView();
+        mPresenter = new TeselaBenchPresenter().attach(mView);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (mPriorityWorkers != null) {
+            mPriorityWorkers.shutdown();
+        }
+        if (mWorkers != null) {
+            mWorkers.shutdown();
+        }
+        mLooper.quit();
+    }
+
+    @Benchmark
+    public void roundTrip() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        mLooper.post(new Runnable() {
+            @Override
+            public void run() {
+                mPresenter.ping(latch);
+            }
+        });
+        latch.await();
+    }
+
+}
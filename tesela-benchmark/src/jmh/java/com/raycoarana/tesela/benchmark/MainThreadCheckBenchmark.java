@@ -0,0 +1,89 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.executor.JvmMainLooper;
+import com.raycoarana.tesela.executor.LooperTeselaExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@code isMainCurrentThread()}, which every generated wrapper pays. Compares the thread
+ * identity check done by {@link LooperTeselaExecutor} with the thread local lookup behind
+ * Android's {@code Looper.myLooper() == Looper.getMainLooper()}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MainThreadCheckBenchmark {
+
+    private JvmMainLooper mLooper;
+    private Thread mMainThread;
+    private LooperTeselaExecutor mExecutor;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        mLooper = new JvmMainLooper();
+        mExecutor = new LooperTeselaExecutor(mLooper);
+        final Thread[] mainThread = new Thread[1];
+        final Object lock = new Object();
+        synchronized (lock) {
+            mLooper.post(new Runnable() {
+                @Override
+                public void run() {
+                    synchronized (lock) {
+                        mainThread[0] = Thread.currentThread();
+                        lock.notifyAll();
+                    }
+                }
+            });
+            while (mainThread[0] == null) {
+                lock.wait();
+            }
+        }
+        mMainThread = mainThread[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        mLooper.quit();
+    }
+
+    @Benchmark
+    public boolean threadIdentity() {
+        return Thread.currentThread() == mMainThread;
+    }
+
+    @Benchmark
+    public boolean threadLocalLooper() {
+        return JvmMainLooper.myLooper() == mLooper;
+    }
+
+    @Benchmark
+    public boolean executor() {
+        return mExecutor.isMainCurrentThread();
+    }
+
+}
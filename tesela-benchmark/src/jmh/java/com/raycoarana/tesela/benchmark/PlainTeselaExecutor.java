@@ -0,0 +1,57 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.TeselaExecutor;
+import com.raycoarana.tesela.executor.JvmMainLooper;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Baseline executor that hands every background task straight to a worker pool, ignoring tags
+ * and priorities, and posts every UI task to the looper on its own.
+ */
+public class PlainTeselaExecutor implements TeselaExecutor {
+
+    private final JvmMainLooper mLooper;
+    private final Executor mWorkerPool;
+
+    public PlainTeselaExecutor(JvmMainLooper looper, Executor workerPool) {
+        mLooper = looper;
+        mWorkerPool = workerPool;
+    }
+
+    @Override
+    public boolean isMainCurrentThread() {
+        return mLooper.isCurrentThread();
+    }
+
+    @Override
+    public void executeInUIThread(Runnable runnable) {
+        mLooper.post(runnable);
+    }
+
+    @Override
+    public void executeInBackground(Runnable runnable) {
+        mWorkerPool.execute(runnable);
+    }
+
+    @Override
+    public void executeInBackground(Runnable runnable, String tag) {
+        mWorkerPool.execute(runnable);
+    }
+
+}
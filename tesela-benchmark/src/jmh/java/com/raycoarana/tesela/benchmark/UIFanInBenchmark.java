@@ -0,0 +1,103 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.executor.JvmMainLooper;
+import com.raycoarana.tesela.executor.MainThreadDispatcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for the main looper to run a burst of UI work sent by several background threads at once,
+ * posting each task to the looper queue or going through a {@link MainThreadDispatcher}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class UIFanInBenchmark {
+
+    @Param({"posted", "drained"})
+    public String dispatch;
+
+    @Param({"4"})
+    public int producers;
+
+    @Param({"1000"})
+    public int callsPerProducer;
+
+    private JvmMainLooper mLooper;
+    private Executor mUIExecutor;
+    private ExecutorService mProducers;
+
+    @Setup
+    public void setUp() {
+        mLooper = new JvmMainLooper();
+        if ("drained".equals(dispatch)) {
+            mUIExecutor = new MainThreadDispatcher(mLooper);
+        } else {
+            mUIExecutor = new Executor() {
+                @Override
+                public void execute(Runnable runnable) {
+                    mLooper.post(runnable);
+                }
+            };
+        }
+        mProducers = Executors.newFixedThreadPool(producers);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mProducers.shutdown();
+        mLooper.quit();
+    }
+
+    @Benchmark
+    public void fanIn() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(producers * callsPerProducer);
+        final Runnable uiWork = new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < producers; i++) {
+            mProducers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int call = 0; call < callsPerProducer; call++) {
+                        mUIExecutor.execute(uiWork);
+                    }
+                }
+            });
+        }
+        latch.await();
+    }
+
+}
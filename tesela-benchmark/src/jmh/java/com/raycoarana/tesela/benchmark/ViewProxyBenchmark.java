@@ -0,0 +1,64 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark;
+
+import com.raycoarana.tesela.ViewProxy;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of calling the view through its generated {@link ViewProxy} instead of directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class ViewProxyBenchmark {
+
+    private BenchView mView;
+    private WeakBenchView mProxy;
+
+    @Setup
+    public void setUp() {
+        mView = new CountingView();
+        mProxy = WeakBenchView.of(mView);
+    }
+
+    @Benchmark
+    public int direct() {
+        mView.render(1);
+        return mView.getRendered();
+    }
+
+    @Benchmark
+    public int proxy() {
+        mProxy.render(1);
+        return mProxy.getRendered();
+    }
+
+    @Benchmark
+    public boolean proxyIsValid() {
+        return mProxy.isValid();
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * Keeps every file written by javac or by the processors in memory, so disk speed does not
+ * affect the measurements.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final List<OutputFile> mOutputs = new ArrayList<>();
+
+    InMemoryFileManager(StandardJavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                                               JavaFileObject.Kind kind, FileObject sibling) {
+        OutputFile output = new OutputFile(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+        mOutputs.add(output);
+        return output;
+    }
+
+    @Override
+    public FileObject getFileForOutput(JavaFileManager.Location location, String packageName,
+                                       String relativeName, FileObject sibling) {
+        String path = packageName.isEmpty() ? relativeName : packageName.replace('.', '/') + "/" + relativeName;
+        OutputFile output = new OutputFile(URI.create("mem:///" + path), JavaFileObject.Kind.OTHER);
+        mOutputs.add(output);
+        return output;
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        if (a instanceof OutputFile || b instanceof OutputFile) {
+            return a.toUri().equals(b.toUri());
+        }
+        return super.isSameFile(a, b);
+    }
+
+    int getGeneratedSourceCount() {
+        int count = 0;
+        for (OutputFile output : mOutputs) {
+            if (output.getKind() == JavaFileObject.Kind.SOURCE) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class OutputFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream mContent = new ByteArrayOutputStream();
+
+        private OutputFile(URI uri, Kind kind) {
+            super(uri, kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            mContent.reset();
+            return mContent;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return new String(mContent.toByteArray(), UTF_8);
+        }
+
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark.processor;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+
+/**
+ * Wraps a {@link Processor} to count its rounds and the time spent and bytes allocated by the
+ * calling thread inside it.
+ */
+class MeasuringProcessor implements Processor {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final Processor mDelegate;
+    private int mRounds;
+    private long mProcessingNanos;
+    private long mAllocatedBytes;
+
+    MeasuringProcessor(Processor delegate) {
+        mDelegate = delegate;
+    }
+
+    static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Override
+    public Set<String> getSupportedOptions() {
+        return mDelegate.getSupportedOptions();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return mDelegate.getSupportedAnnotationTypes();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return mDelegate.getSupportedSourceVersion();
+    }
+
+    @Override
+    public void init(ProcessingEnvironment processingEnv) {
+        mDelegate.init(processingEnv);
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        try {
+            return mDelegate.process(annotations, roundEnv);
+        } finally {
+            mProcessingNanos += System.nanoTime() - start;
+            mAllocatedBytes += allocatedBytes() - allocatedBefore;
+            mRounds++;
+        }
+    }
+
+    @Override
+    public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                                                         ExecutableElement member, String userText) {
+        return mDelegate.getCompletions(element, annotation, member, userText);
+    }
+
+    int getRounds() {
+        return mRounds;
+    }
+
+    long getProcessingNanos() {
+        return mProcessingNanos;
+    }
+
+    long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+}
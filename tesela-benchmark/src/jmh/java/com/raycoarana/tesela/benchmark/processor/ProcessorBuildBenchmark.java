@@ -0,0 +1,62 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark.processor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+/**
+ * Annotation processing time of synthetic projects. Run with {@code -prof gc} to also get the
+ * allocation rate, or use {@link ProcessorReport} for rounds and generated files.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ProcessorBuildBenchmark {
+
+    @Param({"100", "1000"})
+    public int presenters;
+
+    @Param({"10"})
+    public int methodsPerPresenter;
+
+    @Param({"anonymous", "pooled"})
+    public String dispatch;
+
+    private List<JavaFileObject> mSources;
+
+    @Setup
+    public void setUp() {
+        mSources = SyntheticProject.generate(presenters, methodsPerPresenter);
+    }
+
+    @Benchmark
+    public ProcessorRun process() {
+        return ProcessorRun.execute(mSources, dispatch);
+    }
+
+}
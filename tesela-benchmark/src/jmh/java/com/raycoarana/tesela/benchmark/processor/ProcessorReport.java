@@ -0,0 +1,41 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark.processor;
+
+/**
+ * Processes a synthetic project several times in the same JVM and prints the cost of each run.
+ * Arguments: number of presenters, methods per presenter, runs and dispatch mode.
+ */
+public final class ProcessorReport {
+
+    private ProcessorReport() {
+    }
+
+    public static void main(String[] args) {
+        int presenters = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int methodsPerPresenter = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String dispatch = args.length > 3 ? args[3] : "anonymous";
+
+        System.out.println(String.format("%d presenters with %d methods each, %s dispatch",
+                presenters, methodsPerPresenter, dispatch));
+        for (int run = 1; run <= runs; run++) {
+            ProcessorRun result = ProcessorRun.execute(SyntheticProject.generate(presenters, methodsPerPresenter), dispatch);
+            System.out.println("Run " + run + ": " + result);
+        }
+    }
+
+}
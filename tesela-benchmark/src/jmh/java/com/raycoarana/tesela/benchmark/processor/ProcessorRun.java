@@ -0,0 +1,126 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark.processor;
+
+import com.raycoarana.tesela.compiler.TeselaProcessor;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs {@link TeselaProcessor} over a set of sources with an in-process javac, in annotation
+ * processing only mode, and reports what it cost.
+ */
+public final class ProcessorRun {
+
+    private final long mTotalNanos;
+    private final long mProcessingNanos;
+    private final int mRounds;
+    private final long mAllocatedBytes;
+    private final long mProcessingAllocatedBytes;
+    private final int mGeneratedFiles;
+
+    private ProcessorRun(long totalNanos, long processingNanos, int rounds, long allocatedBytes,
+                         long processingAllocatedBytes, int generatedFiles) {
+        mTotalNanos = totalNanos;
+        mProcessingNanos = processingNanos;
+        mRounds = rounds;
+        mAllocatedBytes = allocatedBytes;
+        mProcessingAllocatedBytes = processingAllocatedBytes;
+        mGeneratedFiles = generatedFiles;
+    }
+
+    public static ProcessorRun execute(List<JavaFileObject> sources, String dispatchMode) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No system java compiler, the benchmark must run on a JDK");
+        }
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        InMemoryFileManager fileManager = new InMemoryFileManager(
+                compiler.getStandardFileManager(diagnostics, null, Charset.forName("UTF-8")));
+        List<String> options = new ArrayList<>(Arrays.asList(
+                "-proc:only",
+                "-classpath", System.getProperty("java.class.path"),
+                "-Atesela.dispatch=" + dispatchMode));
+        JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, sources);
+        MeasuringProcessor processor = new MeasuringProcessor(new TeselaProcessor());
+        task.setProcessors(Collections.singletonList(processor));
+
+        long allocatedBefore = MeasuringProcessor.allocatedBytes();
+        long start = System.nanoTime();
+        boolean success = task.call();
+        long totalNanos = System.nanoTime() - start;
+        long allocatedBytes = MeasuringProcessor.allocatedBytes() - allocatedBefore;
+
+        if (!success) {
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    throw new IllegalStateException("Synthetic project failed to process: " + diagnostic);
+                }
+            }
+        }
+
+        return new ProcessorRun(totalNanos, processor.getProcessingNanos(), processor.getRounds(),
+                allocatedBytes, processor.getAllocatedBytes(), fileManager.getGeneratedSourceCount());
+    }
+
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    public long getProcessingNanos() {
+        return mProcessingNanos;
+    }
+
+    public int getRounds() {
+        return mRounds;
+    }
+
+    public long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    public long getProcessingAllocatedBytes() {
+        return mProcessingAllocatedBytes;
+    }
+
+    public int getGeneratedFiles() {
+        return mGeneratedFiles;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d ms total, %d ms in TeselaProcessor, %d rounds, %d MB allocated (%d MB in TeselaProcessor), %d files generated",
+                TimeUnit.NANOSECONDS.toMillis(mTotalNanos),
+                TimeUnit.NANOSECONDS.toMillis(mProcessingNanos),
+                mRounds,
+                mAllocatedBytes >> 20,
+                mProcessingAllocatedBytes >> 20,
+                mGeneratedFiles);
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.benchmark.processor;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Generates the sources of a synthetic app: every screen has a {@code @View} interface and a
+ * presenter with {@code methodsPerPresenter} {@code @Background}/{@code @UI} pairs, plus a few
+ * methods using the other attributes so their generation cost is also measured.
+ */
+public final class SyntheticProject {
+
+    private static final int SCREENS_PER_PACKAGE = 100;
+
+    private SyntheticProject() {
+    }
+
+    public static List<JavaFileObject> generate(int presenterCount, int methodsPerPresenter) {
+        List<JavaFileObject> sources = new ArrayList<>(presenterCount * 2);
+        for (int i = 0; i < presenterCount; i++) {
+            String packageName = "synthetic.feature" + (i / SCREENS_PER_PACKAGE);
+            String screen = "Screen" + i;
+            sources.add(source(packageName, screen + "View", view(packageName, screen, methodsPerPresenter)));
+            sources.add(source(packageName, screen + "Presenter", presenter(packageName, screen, methodsPerPresenter)));
+        }
+        return sources;
+    }
+
+    private static String view(String packageName, String screen, int methods) {
+        StringBuilder builder = new StringBuilder()
+                .append("package ").append(packageName).append(";\n\n")
+                .append("@com.raycoarana.tesela.annotations.View\n")
+                .append("public interface ").append(screen).append("View {\n")
+                .append("    boolean isReady();\n")
+                .append("    void showContent(String content);\n");
+        for (int k = 0; k < methods; k++) {
+            builder.append("    void showItem").append(k).append("(String value, int position);\n");
+        }
+        return builder.append("}\n").toString();
+    }
+
+    private static String presenter(String packageName, String screen, int methods) {
+        StringBuilder builder = new StringBuilder()
+                .append("package ").append(packageName).append(";\n\n")
+                .append("import com.raycoarana.tesela.TeselaFuture;\n")
+                .append("import com.raycoarana.tesela.annotations.*;\n\n")
+                .append("public class ").append(screen).append("Presenter {\n\n")
+                .append("    @ViewReference\n")
+                .append("    protected Weak").append(screen).append("View mView;\n\n");
+        for (int k = 0; k < methods; k++) {
+            builder.append("    @Background").append(k % 3 == 0 ? "(tag = \"io\")" : "").append("\n")
+                    .append("    protected void load").append(k).append("(String id, int page) {\n")
+                    .append("        show").append(k).append("(id, page);\n")
+                    .append("    }\n\n")
+                    .append("    @UI\n")
+                    .append("    protected void show").append(k).append("(String value, int position) {\n")
+                    .append("        mView.showItem").append(k).append("(value, position);\n")
+                    .append("    }\n\n");
+        }
+        return builder
+                .append("    @Background(dedupe = true)\n")
+                .append("    @Cached(ttlMs = 1000, deliverTo = \"showContent\")\n")
+                .append("    protected TeselaFuture<String> fetch(String id) {\n")
+                .append("        return TeselaFuture.completed(id);\n")
+                .append("    }\n\n")
+                .append("    @Background(mode = Background.Mode.LATEST)\n")
+                .append("    @Debounce(300)\n")
+                .append("    protected void search(String query) {\n")
+                .append("        showContent(query);\n")
+                .append("    }\n\n")
+                .append("    @UI\n")
+                .append("    protected void showContent(String content) {\n")
+                .append("        mView.showContent(content);\n")
+                .append("    }\n")
+                .append("}\n")
+                .toString();
+    }
+
+    private static JavaFileObject source(String packageName, String name, final String code) {
+        URI uri = URI.create("string:///" + packageName.replace('.', '/') + "/" + name + JavaFileObject.Kind.SOURCE.extension);
+        return new SimpleJavaFileObject(uri, JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+}
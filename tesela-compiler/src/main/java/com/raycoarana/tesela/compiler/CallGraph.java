@@ -0,0 +1,299 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.annotations.Background;
+import com.raycoarana.tesela.annotations.Batched;
+import com.raycoarana.tesela.annotations.Cached;
+import com.raycoarana.tesela.annotations.Debounce;
+import com.raycoarana.tesela.annotations.Throttle;
+import com.raycoarana.tesela.annotations.UI;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+
+/**
+ * Calls between the @Background and @UI methods of a presenter, read from their source with the
+ * javac tree API. Method bodies are not attributed yet while annotations are processed, so a call
+ * is only resolved when it is made on the presenter itself and its name and number of arguments
+ * match a single method. Calls from anonymous classes and lambdas, which may run on any thread,
+ * and calls through other methods are not followed.
+ * <p>
+ * A @UI method whose body only starts plain @Background methods with its own parameters or
+ * literals doesn't need the UI thread, so it is fused: when called from a background thread it
+ * submits that work right away instead of hopping to the UI thread first.
+ */
+public class CallGraph {
+
+    private final Map<ExecutableElement, List<Call>> calls = new LinkedHashMap<>();
+    private final Map<ExecutableElement, Set<String>> unresolvedCalls = new LinkedHashMap<>();
+    private final Set<ExecutableElement> fusedMethods = new LinkedHashSet<>();
+    private final Set<ExecutableElement> fusionTargets = new HashSet<>();
+
+    private CallGraph() {
+    }
+
+    public static CallGraph empty() {
+        return new CallGraph();
+    }
+
+    public static CallGraph build(PresenterMetaModel presenterMetaModel, Trees trees) {
+        CallGraph callGraph = new CallGraph();
+        List<ExecutableElement> methods = new ArrayList<>(presenterMetaModel.getBackgroundMethods());
+        methods.addAll(presenterMetaModel.getUiMethods());
+        for (ExecutableElement method : methods) {
+            MethodTree methodTree = trees.getTree(method);
+            if (methodTree == null || methodTree.getBody() == null) {
+                continue;
+            }
+            CallCollector collector = new CallCollector(presenterMetaModel, method);
+            methodTree.getBody().accept(collector, null);
+            callGraph.calls.put(method, collector.calls);
+            if (!collector.unresolvedCalls.isEmpty()) {
+                callGraph.unresolvedCalls.put(method, collector.unresolvedCalls);
+            }
+        }
+
+        for (ExecutableElement method : presenterMetaModel.getUiMethods()) {
+            MethodTree methodTree = trees.getTree(method);
+            if (methodTree != null && canBeFused(method, methodTree, callGraph.getCalls(method))) {
+                callGraph.fusedMethods.add(method);
+                for (Call call : callGraph.getCalls(method)) {
+                    callGraph.fusionTargets.add(call.getTarget());
+                }
+            }
+        }
+        return callGraph;
+    }
+
+    public List<Call> getCalls(ExecutableElement method) {
+        List<Call> methodCalls = calls.get(method);
+        return methodCalls != null ? methodCalls : Collections.<Call>emptyList();
+    }
+
+    public Set<String> getUnresolvedCalls(ExecutableElement method) {
+        Set<String> methodCalls = unresolvedCalls.get(method);
+        return methodCalls != null ? methodCalls : Collections.<String>emptySet();
+    }
+
+    public boolean isFused(ExecutableElement method) {
+        return fusedMethods.contains(method);
+    }
+
+    public boolean isFusionTarget(ExecutableElement method) {
+        return fusionTargets.contains(method);
+    }
+
+    public boolean isCalled(ExecutableElement method) {
+        for (List<Call> methodCalls : calls.values()) {
+            for (Call call : methodCalls) {
+                if (call.getTarget().equals(method)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean canBeFused(ExecutableElement method, MethodTree methodTree, List<Call> methodCalls) {
+        if (method.getAnnotation(UI.class).conflate() || isRateLimited(method)
+                || !method.getTypeParameters().isEmpty()) {
+            return false;
+        }
+
+        List<? extends StatementTree> statements = methodTree.getBody().getStatements();
+        if (statements.isEmpty() || statements.size() != methodCalls.size()) {
+            return false;
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            StatementTree statement = statements.get(i);
+            Call call = methodCalls.get(i);
+            if (!(statement instanceof ExpressionStatementTree)
+                    || ((ExpressionStatementTree) statement).getExpression() != call.getInvocation()
+                    || !isPlainBackgroundMethod(call.getTarget())
+                    || !hasOnlyParametersOrLiterals(method, call.getInvocation())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlainBackgroundMethod(ExecutableElement method) {
+        Background background = method.getAnnotation(Background.class);
+        return background != null
+                && method.getReturnType().getKind() == TypeKind.VOID
+                && method.getTypeParameters().isEmpty()
+                && !background.dedupe()
+                && background.mode() == Background.Mode.ALL
+                && method.getAnnotation(Cached.class) == null
+                && method.getAnnotation(Batched.class) == null
+                && !isRateLimited(method);
+    }
+
+    private static boolean hasOnlyParametersOrLiterals(ExecutableElement method, MethodInvocationTree invocation) {
+        for (ExpressionTree argument : invocation.getArguments()) {
+            if (argument instanceof LiteralTree) {
+                continue;
+            }
+            if (!(argument instanceof IdentifierTree) || !isParameter(method, ((IdentifierTree) argument).getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isParameter(ExecutableElement method, CharSequence name) {
+        for (VariableElement parameter : method.getParameters()) {
+            if (parameter.getSimpleName().contentEquals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isRateLimited(ExecutableElement method) {
+        return method.getAnnotation(Debounce.class) != null || method.getAnnotation(Throttle.class) != null;
+    }
+
+    public static class Call {
+
+        private final ExecutableElement target;
+        private final MethodInvocationTree invocation;
+
+        private Call(ExecutableElement target, MethodInvocationTree invocation) {
+            this.target = target;
+            this.invocation = invocation;
+        }
+
+        public ExecutableElement getTarget() {
+            return target;
+        }
+
+        public MethodInvocationTree getInvocation() {
+            return invocation;
+        }
+
+        public String getArgumentsSource() {
+            StringBuilder arguments = new StringBuilder();
+            for (ExpressionTree argument : invocation.getArguments()) {
+                if (arguments.length() > 0) {
+                    arguments.append(", ");
+                }
+                arguments.append(argument.toString());
+            }
+            return arguments.toString();
+        }
+
+    }
+
+    private static class CallCollector extends TreeScanner<Void, Void> {
+
+        private final PresenterMetaModel presenterMetaModel;
+        private final ExecutableElement caller;
+        private final List<Call> calls = new ArrayList<>();
+        private final Set<String> unresolvedCalls = new LinkedHashSet<>();
+
+        private CallCollector(PresenterMetaModel presenterMetaModel, ExecutableElement caller) {
+            this.presenterMetaModel = presenterMetaModel;
+            this.caller = caller;
+        }
+
+        @Override
+        public Void visitClass(ClassTree node, Void unused) {
+            return null;
+        }
+
+        @Override
+        public Void visitLambdaExpression(LambdaExpressionTree node, Void unused) {
+            return null;
+        }
+
+        @Override
+        public Void visitMethodInvocation(MethodInvocationTree node, Void unused) {
+            super.visitMethodInvocation(node, unused);
+
+            String name = getNameOnPresenter(node.getMethodSelect());
+            if (name == null) {
+                return null;
+            }
+            ExecutableElement target = null;
+            int candidates = 0;
+            for (Element element : presenterMetaModel.getTypeElement().getEnclosedElements()) {
+                if (element.getKind() != ElementKind.METHOD || !element.getSimpleName().contentEquals(name)) {
+                    continue;
+                }
+                ExecutableElement method = (ExecutableElement) element;
+                if (method.isVarArgs() || method.getParameters().size() == node.getArguments().size()) {
+                    target = method;
+                    candidates++;
+                }
+            }
+
+            if (candidates > 1) {
+                unresolvedCalls.add(name);
+            } else if (target != null && !target.equals(caller) && isAnnotated(target)) {
+                calls.add(new Call(target, node));
+            }
+            return null;
+        }
+
+        private boolean isAnnotated(ExecutableElement method) {
+            return presenterMetaModel.getBackgroundMethods().contains(method)
+                    || presenterMetaModel.getUiMethods().contains(method);
+        }
+
+        private static String getNameOnPresenter(ExpressionTree methodSelect) {
+            if (methodSelect.getKind() == Tree.Kind.IDENTIFIER) {
+                return ((IdentifierTree) methodSelect).getName().toString();
+            }
+            if (methodSelect.getKind() == Tree.Kind.MEMBER_SELECT) {
+                MemberSelectTree memberSelect = (MemberSelectTree) methodSelect;
+                ExpressionTree receiver = memberSelect.getExpression();
+                if (receiver.getKind() == Tree.Kind.IDENTIFIER && ((IdentifierTree) receiver).getName().contentEquals("this")) {
+                    return memberSelect.getIdentifier().toString();
+                }
+            }
+            return null;
+        }
+
+    }
+
+}
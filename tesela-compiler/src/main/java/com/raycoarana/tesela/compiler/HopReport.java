@@ -0,0 +1,159 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.annotations.Background;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.Filer;
+import javax.lang.model.element.ExecutableElement;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Writes, next to the generated presenter class, the thread hops found in the {@link CallGraph} of
+ * a presenter and how many of them each entry point can cause.
+ */
+public class HopReport {
+
+    public static final String OPTION = "tesela.hopReport";
+
+    private final PresenterMetaModel presenterMetaModel;
+    private final CallGraph callGraph;
+    private final StringBuilder report = new StringBuilder();
+
+    private HopReport(PresenterMetaModel presenterMetaModel, CallGraph callGraph) {
+        this.presenterMetaModel = presenterMetaModel;
+        this.callGraph = callGraph;
+    }
+
+    public static void write(PresenterMetaModel presenterMetaModel, CallGraph callGraph, Filer filer) throws IOException {
+        HopReport hopReport = new HopReport(presenterMetaModel, callGraph);
+        hopReport.build();
+        FileObject file = filer.createResource(StandardLocation.CLASS_OUTPUT, presenterMetaModel.getPackageName(),
+                presenterMetaModel.getName() + "-hops.txt", presenterMetaModel.getTypeElement());
+        Writer writer = file.openWriter();
+        try {
+            writer.write(hopReport.report.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void build() {
+        List<ExecutableElement> methods = new ArrayList<>(presenterMetaModel.getBackgroundMethods());
+        methods.addAll(presenterMetaModel.getUiMethods());
+
+        report.append("Thread hops of ").append(presenterMetaModel.getQualifiedName()).append("\n");
+        int callCount = 0;
+        int hopCount = 0;
+        int fusedCount = 0;
+        for (ExecutableElement method : methods) {
+            List<CallGraph.Call> calls = callGraph.getCalls(method);
+            Set<String> unresolvedCalls = callGraph.getUnresolvedCalls(method);
+            if (callGraph.isFused(method)) {
+                fusedCount++;
+            }
+            if (calls.isEmpty() && unresolvedCalls.isEmpty()) {
+                continue;
+            }
+            report.append("\n").append(method.getSimpleName()).append(" (").append(describe(method)).append(")\n");
+            for (CallGraph.Call call : calls) {
+                callCount++;
+                if (isHop(method, call.getTarget())) {
+                    hopCount++;
+                }
+                report.append("  -> ").append(call.getTarget().getSimpleName())
+                        .append(" (").append(describe(call.getTarget())).append("): ")
+                        .append(describeHop(method, call.getTarget())).append("\n");
+            }
+            for (String unresolvedCall : unresolvedCalls) {
+                report.append("  -> ").append(unresolvedCall).append(": overloaded, not resolved\n");
+            }
+        }
+
+        report.append("\n").append(callCount).append(" calls between annotated methods, ")
+                .append(hopCount).append(" of them thread hops, ")
+                .append(fusedCount).append(" fused @UI methods\n");
+
+        report.append("\nEntry points with thread hops\n");
+        for (ExecutableElement method : methods) {
+            int hops = callGraph.isCalled(method) ? 0 : countHops(method, new HashSet<ExecutableElement>());
+            if (hops > 0) {
+                report.append("  ").append(method.getSimpleName()).append(": up to ").append(hops)
+                        .append(hops == 1 ? " thread hop\n" : " thread hops\n");
+            }
+        }
+    }
+
+    private int countHops(ExecutableElement method, Set<ExecutableElement> visited) {
+        if (!visited.add(method)) {
+            return 0;
+        }
+        int hops = 0;
+        for (CallGraph.Call call : callGraph.getCalls(method)) {
+            if (isHop(method, call.getTarget())) {
+                hops++;
+            }
+            hops += countHops(call.getTarget(), visited);
+        }
+        return hops;
+    }
+
+    private String describe(ExecutableElement method) {
+        if (isBackground(method)) {
+            return "@Background";
+        }
+        return callGraph.isFused(method) ? "@UI, fused" : "@UI";
+    }
+
+    private String describeHop(ExecutableElement caller, ExecutableElement target) {
+        if (callGraph.isFused(caller)) {
+            return "submitted from the calling thread, no UI thread hop";
+        }
+        if (callGraph.isFused(target)) {
+            return "runs on the calling thread";
+        }
+        if (!isHop(caller, target)) {
+            return "runs inline after a runtime thread check";
+        }
+        return isBackground(target) ? "hop to a background thread" : "hop to the UI thread";
+    }
+
+    private boolean isHop(ExecutableElement caller, ExecutableElement target) {
+        if (callGraph.isFused(target)) {
+            return false;
+        }
+        if (callGraph.isFused(caller)) {
+            return true;
+        }
+        if (isBackground(caller) && isBackground(target)) {
+            return PresenterMetaModel.isAlwaysSubmitted(target);
+        }
+        return isBackground(caller) != isBackground(target);
+    }
+
+    private static boolean isBackground(ExecutableElement method) {
+        return method.getAnnotation(Background.class) != null;
+    }
+
+}
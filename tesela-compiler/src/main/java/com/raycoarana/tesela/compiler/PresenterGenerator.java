@@ -15,23 +15,53 @@
 */
 package com.raycoarana.tesela.compiler;
 
+import com.raycoarana.tesela.BackgroundTask;
+import com.raycoarana.tesela.Batcher;
+import com.raycoarana.tesela.CancellationToken;
+import com.raycoarana.tesela.ConflatedCall;
+import com.raycoarana.tesela.Debouncer;
+import com.raycoarana.tesela.Monitoring;
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.Priority;
+import com.raycoarana.tesela.QueueLimit;
+import com.raycoarana.tesela.ResultCache;
+import com.raycoarana.tesela.SingleFlight;
+import com.raycoarana.tesela.StoredResult;
+import com.raycoarana.tesela.TaskPool;
 import com.raycoarana.tesela.Tesela;
 import com.raycoarana.tesela.TeselaExecutor;
+import com.raycoarana.tesela.TeselaFuture;
+import com.raycoarana.tesela.Throttler;
 import com.raycoarana.tesela.annotations.Background;
+import com.raycoarana.tesela.annotations.Batched;
+import com.raycoarana.tesela.annotations.Cached;
+import com.raycoarana.tesela.annotations.Debounce;
+import com.raycoarana.tesela.annotations.Throttle;
 import com.raycoarana.tesela.annotations.UI;
 import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
 import com.squareup.javapoet.ParameterSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 import com.squareup.javapoet.TypeVariableName;
+import com.squareup.javapoet.WildcardTypeName;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.processing.Filer;
 import javax.lang.model.element.AnnotationMirror;
@@ -47,23 +77,58 @@ import javax.lang.model.type.TypeVariable;
 public class PresenterGenerator {
 
     private static final String TESELA_EXECUTOR_FIELD_NAME = "mTeselaExecutor";
+    private static final String POOLED_TASK_VARIABLE_NAME = "teselaTask";
+    private static final String BACKGROUND_TASK_VARIABLE_NAME = "teselaTask";
+    private static final String FUTURE_VARIABLE_NAME = "teselaFuture";
+    private static final String SHARED_FUTURE_VARIABLE_NAME = "teselaSharedFuture";
+    private static final String KEY_VARIABLE_NAME = "teselaKey";
+    private static final String ORIGIN_VARIABLE_NAME = "teselaOrigin";
+    private static final String LIVE_VARIABLE_NAME = "teselaLive";
+    private static final String PREVIOUS_TASK_VARIABLE_NAME = "teselaPreviousTask";
+    private static final String CACHED_RESULT_VARIABLE_NAME = "teselaCachedResult";
+    private static final String RESULT_VARIABLE_NAME = "teselaResult";
+    private static final String STORED_RESULT_VARIABLE_NAME = "teselaStoredResult";
+    private static final String BATCH_VARIABLE_NAME = "teselaBatch";
+    private static final String POSTED_AT_VARIABLE_NAME = "teselaPostedAt";
+    private static final String STARTED_AT_VARIABLE_NAME = "teselaStartedAt";
+    private static final String BACKGROUND_DISPATCHER_NAME = "BackgroundDispatcher";
+    private static final String UI_DISPATCHER_NAME = "UIDispatcher";
 
     private static final ClassName OVERRIDE = ClassName.get(Override.class);
     private static final ClassName BACKGROUND = ClassName.get(Background.class);
     private static final ClassName UI = ClassName.get(UI.class);
+    private static final ClassName BATCHED = ClassName.get(Batched.class);
+    private static final ClassName CACHED = ClassName.get(Cached.class);
+    private static final ClassName DEBOUNCE = ClassName.get(Debounce.class);
+    private static final ClassName THROTTLE = ClassName.get(Throttle.class);
+    private static final ClassName BACKGROUND_TASK = ClassName.get(BackgroundTask.class);
+    private static final ClassName CANCELLATION_TOKEN = ClassName.get(CancellationToken.class);
+    private static final ClassName MONITORING = ClassName.get(Monitoring.class);
 
     private final PresenterMetaModel presenterMetaModel;
     private final Filer filer;
+    private final DispatchMode dispatchMode;
+    private final CallGraph callGraph;
+    private final Map<ExecutableElement, MethodSpec> submitMethods = new HashMap<>();
+    private final Map<ExecutableElement, String> queueLimitFieldNames = new HashMap<>();
+    private final Set<String> fieldNames = new HashSet<>();
+    private final Set<String> typeNames = new HashSet<>();
+    private final List<ExecutableElement> backgroundDispatchedMethods = new ArrayList<>();
+    private final List<ExecutableElement> uiDispatchedMethods = new ArrayList<>();
     private TypeSpec.Builder typeBuilder;
 
-    public static void generate(PresenterMetaModel presenterMetaModel, Filer filer) throws IOException {
-        PresenterGenerator presenterGenerator = new PresenterGenerator(presenterMetaModel, filer);
+    public static void generate(PresenterMetaModel presenterMetaModel, Filer filer, DispatchMode dispatchMode,
+                                CallGraph callGraph) throws IOException {
+        PresenterGenerator presenterGenerator = new PresenterGenerator(presenterMetaModel, filer, dispatchMode, callGraph);
         presenterGenerator.execute();
     }
 
-    private PresenterGenerator(PresenterMetaModel presenterMetaModel, Filer filer) {
+    private PresenterGenerator(PresenterMetaModel presenterMetaModel, Filer filer, DispatchMode dispatchMode,
+                               CallGraph callGraph) {
         this.presenterMetaModel = presenterMetaModel;
         this.filer = filer;
+        this.dispatchMode = dispatchMode;
+        this.callGraph = callGraph;
     }
 
     private void execute() throws IOException {
@@ -71,6 +136,7 @@ public class PresenterGenerator {
         createConstructors();
         createBackgroundWrapperMethods();
         createUIWrapperMethods();
+        createDispatcherTypes();
         writeToFile();
     }
 
@@ -143,28 +209,473 @@ public class PresenterGenerator {
     }
 
     private void createBackgroundWrapperMethod(ExecutableElement element) {
-        MethodSpec.Builder builder = overriding(element, BACKGROUND);
+        if (element.getAnnotation(Batched.class) != null) {
+            createBatchedBackgroundWrapperMethod(element);
+            return;
+        }
+        if (isRateLimited(element)) {
+            createRateLimitedBackgroundWrapperMethod(element);
+            return;
+        }
 
-        builder.beginControlFlow("if ($L.isMainCurrentThread())", TESELA_EXECUTOR_FIELD_NAME)
-                .beginControlFlow("$L.executeInBackground(new Runnable()", TESELA_EXECUTOR_FIELD_NAME)
-                .beginControlFlow("public void run()");
-        addSuperCallStatement(element, builder, true);
-        builder.endControlFlow();
+        MethodSpec.Builder builder = overriding(element, BACKGROUND);
+        if (PresenterMetaModel.isAlwaysSubmitted(element)) {
+            addSubmitBackgroundTaskStatements(element, builder);
+            typeBuilder.addMethod(builder.build());
+            return;
+        }
 
-        String tag = element.getAnnotation(Background.class).tag();
-        if (Background.NONE.equals(tag)) {
-            builder.endControlFlow(")");
+        builder.beginControlFlow("if ($L.isMainCurrentThread())", TESELA_EXECUTOR_FIELD_NAME);
+        if (callGraph.isFusionTarget(element)) {
+            builder.addStatement("$N($L)", getSubmitMethod(element), getArguments(element));
         } else {
-            builder.endControlFlow(", $S)", tag);
+            addSubmitBackgroundTaskStatements(element, builder);
         }
         builder.endControlFlow()
                 .beginControlFlow("else");
-        addSuperCallStatement(element, builder, false);
-        builder.endControlFlow();
+        builder.addStatement("$L", getSuperCall(element, false, getArguments(element, CodeBlock.of("$T.currentToken()", BACKGROUND_TASK))))
+                .endControlFlow();
 
         typeBuilder.addMethod(builder.build());
     }
 
+    private void addSubmitBackgroundTaskStatements(ExecutableElement element, MethodSpec.Builder builder) {
+        if (canUsePooledTask(element) && !hasBackgroundInterceptors(element)) {
+            String taskVariable = addPooledTaskStatements(element, builder, true);
+            builder.addStatement("$L.submitTo($L)", taskVariable, TESELA_EXECUTOR_FIELD_NAME);
+        } else if (canUseDispatcher(element) && !hasBackgroundInterceptors(element) && !isQueueLimited(element)
+                && !hasPool(element)) {
+            backgroundDispatchedMethods.add(element);
+            Background background = element.getAnnotation(Background.class);
+            builder.addStatement("new $T($L, $L, $S, $S, $T.$L).submitTo($L)", getDispatcherClassName(BACKGROUND_DISPATCHER_NAME),
+                    backgroundDispatchedMethods.size() - 1, getPackedArguments(element, CodeBlock.of("null")),
+                    getMonitoredName(element), background.tag(), Priority.class, background.priority().name(),
+                    TESELA_EXECUTOR_FIELD_NAME);
+        } else {
+            addBackgroundTaskStatements(element, builder);
+        }
+    }
+
+    /**
+     * Plain @Background methods started by a fused @UI method get their submission in a method of
+     * its own, so the fused method can call it from any thread.
+     */
+    private MethodSpec getSubmitMethod(ExecutableElement element) {
+        MethodSpec submitMethod = submitMethods.get(element);
+        if (submitMethod == null) {
+            MethodSpec.Builder submitBuilder = MethodSpec.methodBuilder(createFieldName("submit", element, ""))
+                    .addModifiers(Modifier.PRIVATE);
+            for (VariableElement parameter : element.getParameters()) {
+                submitBuilder.addParameter(TypeName.get(parameter.asType()), parameter.getSimpleName().toString(), Modifier.FINAL);
+            }
+            addSubmitBackgroundTaskStatements(element, submitBuilder);
+            submitMethod = submitBuilder.build();
+            typeBuilder.addMethod(submitMethod);
+            submitMethods.put(element, submitMethod);
+        }
+        return submitMethod;
+    }
+
+    /**
+     * Calls to a @Debounce or @Throttle method only offer their arguments to a rate limiter, which
+     * later hands them to a private dispatch method that submits the background task.
+     */
+    private void createRateLimitedBackgroundWrapperMethod(ExecutableElement element) {
+        MethodSpec.Builder dispatchBuilder = createDispatchMethodBuilder(element);
+        addSubmitBackgroundTaskStatements(element, dispatchBuilder);
+        MethodSpec dispatchMethod = dispatchBuilder.build();
+        typeBuilder.addMethod(dispatchMethod);
+
+        String rateLimiterFieldName = addRateLimiterField(element, dispatchMethod, false);
+        typeBuilder.addMethod(overriding(element, BACKGROUND)
+                .addStatement("$L.offer(new $T[]{$L})", rateLimiterFieldName, Object.class, getArguments(element))
+                .build());
+    }
+
+    /**
+     * Calls to a @Batched method add their argument to a batcher, which hands each full or
+     * expired batch to a private dispatch method that runs the target method in one task.
+     */
+    private void createBatchedBackgroundWrapperMethod(ExecutableElement element) {
+        Batched batched = element.getAnnotation(Batched.class);
+        VariableElement parameter = element.getParameters().get(0);
+        TypeName itemType = TypeName.get(parameter.asType()).box();
+        TypeName batchType = ParameterizedTypeName.get(ClassName.get(List.class), itemType);
+
+        MethodSpec.Builder dispatchBuilder = MethodSpec.methodBuilder(createFieldName("dispatch", element, "Batch"))
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(batchType, BATCH_VARIABLE_NAME, Modifier.FINAL)
+                .addCode("$T $L = ", BACKGROUND_TASK, BACKGROUND_TASK_VARIABLE_NAME)
+                .beginControlFlow("new $T($L)", BACKGROUND_TASK, getBackgroundTaskArguments(element, CodeBlock.of("this")))
+                .addCode("@$T\n", OVERRIDE)
+                .beginControlFlow("protected void doInBackground()")
+                .addStatement("$L.super.$L($L)", presenterMetaModel.getName(), batched.target(), BATCH_VARIABLE_NAME)
+                .endControlFlow();
+        addPoolOverride(element, dispatchBuilder);
+        dispatchBuilder.endControlFlow("")
+                .addStatement("$L.submitTo($L)", BACKGROUND_TASK_VARIABLE_NAME, TESELA_EXECUTOR_FIELD_NAME);
+        MethodSpec dispatchMethod = dispatchBuilder.build();
+        typeBuilder.addMethod(dispatchMethod);
+
+        TypeName batcherType = ParameterizedTypeName.get(ClassName.get(Batcher.class), itemType);
+        String batcherFieldName = createFieldName(element, "Batcher");
+        typeBuilder.addField(FieldSpec.builder(batcherType, batcherFieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("$L", TypeSpec.anonymousClassBuilder("$L, $LL", batched.maxSize(), batched.maxDelayMs())
+                        .superclass(batcherType)
+                        .addMethod(MethodSpec.methodBuilder("dispatch")
+                                .addAnnotation(OVERRIDE)
+                                .addModifiers(Modifier.PROTECTED)
+                                .addParameter(batchType, BATCH_VARIABLE_NAME)
+                                .addStatement("$N($L)", dispatchMethod, BATCH_VARIABLE_NAME)
+                                .build())
+                        .build())
+                .build());
+
+        typeBuilder.addMethod(overriding(element, BACKGROUND)
+                .addStatement("$L.add($L)", batcherFieldName, parameter.getSimpleName().toString())
+                .build());
+    }
+
+    private MethodSpec.Builder createDispatchMethodBuilder(ExecutableElement element) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(createFieldName("dispatch", element, ""))
+                .addModifiers(Modifier.PRIVATE);
+        for (VariableElement parameter : element.getParameters()) {
+            builder.addParameter(TypeName.get(parameter.asType()), parameter.getSimpleName().toString(), Modifier.FINAL);
+        }
+        return builder;
+    }
+
+    private String addRateLimiterField(ExecutableElement element, MethodSpec dispatchMethod, boolean withOrigin) {
+        Debounce debounce = element.getAnnotation(Debounce.class);
+        ClassName rateLimiterType;
+        long intervalMs;
+        if (debounce != null) {
+            rateLimiterType = ClassName.get(Debouncer.class);
+            intervalMs = debounce.value();
+        } else {
+            rateLimiterType = ClassName.get(Throttler.class);
+            intervalMs = element.getAnnotation(Throttle.class).value();
+        }
+
+        CodeBlock arguments = getUnpackedArguments(element, "arguments");
+        if (withOrigin) {
+            CodeBlock origin = CodeBlock.of("($T) arguments[$L]", CANCELLATION_TOKEN, element.getParameters().size());
+            arguments = element.getParameters().isEmpty() ? origin : CodeBlock.of("$L,$L", arguments, origin);
+        }
+
+        MethodSpec.Builder dispatchBuilder = MethodSpec.methodBuilder("dispatch")
+                .addAnnotation(OVERRIDE)
+                .addModifiers(Modifier.PROTECTED)
+                .addParameter(Object[].class, "arguments")
+                .addStatement("$N($L)", dispatchMethod, arguments);
+        if (hasGenericParameters(element)) {
+            dispatchBuilder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
+        }
+
+        String fieldName = createFieldName(element, "RateLimiter");
+        typeBuilder.addField(FieldSpec.builder(rateLimiterType, fieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("$L", TypeSpec.anonymousClassBuilder("$LL", intervalMs)
+                        .superclass(rateLimiterType)
+                        .addMethod(dispatchBuilder.build())
+                        .build())
+                .build());
+        return fieldName;
+    }
+
+    private static boolean isRateLimited(ExecutableElement element) {
+        return element.getAnnotation(Debounce.class) != null || element.getAnnotation(Throttle.class) != null;
+    }
+
+    private void addBackgroundTaskStatements(ExecutableElement element, MethodSpec.Builder builder) {
+        Background background = element.getAnnotation(Background.class);
+        Cached cached = element.getAnnotation(Cached.class);
+        boolean returnsFuture = PresenterMetaModel.returnsFuture(element);
+        boolean unchecked = false;
+        CodeBlock superCall = getSuperCall(element, true, getArguments(element, CodeBlock.of("this")));
+        CodeBlock.Builder doInBackground = CodeBlock.builder();
+        CodeBlock.Builder onFinished = CodeBlock.builder();
+
+        if (background.dedupe() || cached != null) {
+            builder.addStatement("final $T $L = $T.key(new $T[]{$L})", Object.class, KEY_VARIABLE_NAME,
+                    SingleFlight.class, Object.class, getKeyArguments(element));
+        }
+
+        String resultCacheFieldName = null;
+        if (cached != null) {
+            TypeName futureType = TypeName.get(element.getReturnType());
+            TypeName resultType = ((ParameterizedTypeName) futureType).typeArguments.get(0);
+            boolean genericResult = containsTypeVariable(resultType);
+            resultCacheFieldName = addResultCacheField(element, cached, genericResult ? TypeName.OBJECT : resultType);
+
+            CodeBlock cachedResult = CodeBlock.of("$L.get($L)", resultCacheFieldName, KEY_VARIABLE_NAME);
+            if (genericResult) {
+                cachedResult = CodeBlock.of("($T) $L", resultType, cachedResult);
+                unchecked = true;
+            }
+            builder.addStatement("$T $L = $L", resultType, CACHED_RESULT_VARIABLE_NAME, cachedResult)
+                    .beginControlFlow("if ($L != null)", CACHED_RESULT_VARIABLE_NAME);
+            if (!Cached.NONE.equals(cached.deliverTo())) {
+                builder.addStatement("$L($L)", cached.deliverTo(), CACHED_RESULT_VARIABLE_NAME);
+            }
+            if (PresenterMetaModel.returnsTeselaFuture(element)) {
+                builder.addStatement("return $T.completed($L)", TeselaFuture.class, CACHED_RESULT_VARIABLE_NAME);
+            } else {
+                builder.addStatement("return $T.completedFuture($L)", getRawType(futureType), CACHED_RESULT_VARIABLE_NAME);
+            }
+            builder.endControlFlow();
+        }
+
+        String singleFlightFieldName = null;
+        if (background.dedupe()) {
+            singleFlightFieldName = addSingleFlightField(element);
+        }
+
+        if (returnsFuture) {
+            TypeName futureType = TypeName.get(element.getReturnType());
+            builder.addStatement("final $T $L = new $T<>()", futureType, FUTURE_VARIABLE_NAME, getRawType(futureType));
+            if (singleFlightFieldName != null) {
+                CodeBlock sharedFuture = CodeBlock.of("$L.join($L, $L)", singleFlightFieldName, KEY_VARIABLE_NAME, FUTURE_VARIABLE_NAME);
+                if (!element.getTypeParameters().isEmpty()) {
+                    sharedFuture = CodeBlock.of("($T) $L", futureType, sharedFuture);
+                    unchecked = true;
+                }
+                builder.addStatement("$T $L = $L", futureType, SHARED_FUTURE_VARIABLE_NAME, sharedFuture)
+                        .beginControlFlow("if ($L != null)", SHARED_FUTURE_VARIABLE_NAME)
+                        .addStatement("return $L", SHARED_FUTURE_VARIABLE_NAME)
+                        .endControlFlow();
+            }
+
+            doInBackground.beginControlFlow("try");
+            if (cached != null) {
+                TypeName resultType = ((ParameterizedTypeName) futureType).typeArguments.get(0);
+                if (cached.persistent()) {
+                    addStoredResultStatements(doInBackground, cached, resultCacheFieldName, resultType);
+                }
+                doInBackground.addStatement("$T $L = $L.get()", resultType, RESULT_VARIABLE_NAME, superCall)
+                        .addStatement("$L.put($L, $L)", resultCacheFieldName, KEY_VARIABLE_NAME, RESULT_VARIABLE_NAME)
+                        .addStatement("$L.complete($L)", FUTURE_VARIABLE_NAME, RESULT_VARIABLE_NAME);
+                if (!Cached.NONE.equals(cached.deliverTo())) {
+                    doInBackground.addStatement("$L.this.$L($L)", presenterMetaModel.getName(), cached.deliverTo(), RESULT_VARIABLE_NAME);
+                }
+            } else {
+                doInBackground.addStatement("$L.complete($L.get())", FUTURE_VARIABLE_NAME, superCall);
+            }
+            doInBackground.nextControlFlow("catch ($T e)", ExecutionException.class)
+                    .addStatement("$L.completeExceptionally(e.getCause())", FUTURE_VARIABLE_NAME)
+                    .nextControlFlow("catch ($T e)", Throwable.class)
+                    .addStatement("$L.completeExceptionally(e)", FUTURE_VARIABLE_NAME)
+                    .endControlFlow();
+            onFinished.beginControlFlow("if (!$L.isDone())", FUTURE_VARIABLE_NAME)
+                    .addStatement("$L.cancel(false)", FUTURE_VARIABLE_NAME)
+                    .endControlFlow();
+        } else {
+            doInBackground.addStatement("$L", superCall);
+        }
+
+        if (unchecked) {
+            builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
+        }
+
+        if (singleFlightFieldName != null) {
+            onFinished.addStatement("$L.leave($L, $L)", singleFlightFieldName, KEY_VARIABLE_NAME,
+                    returnsFuture ? FUTURE_VARIABLE_NAME : "this");
+        }
+
+        String latestTaskFieldName = null;
+        if (background.mode() == Background.Mode.LATEST) {
+            latestTaskFieldName = addLatestTaskField(element);
+            onFinished.addStatement("$L.compareAndSet(this, null)", latestTaskFieldName);
+        }
+
+        addBackgroundTaskDeclaration(element, builder, doInBackground.build(), onFinished.build(), !returnsFuture);
+
+        if (PresenterMetaModel.returnsTeselaFuture(element)) {
+            builder.addStatement("$L.attach($L)", FUTURE_VARIABLE_NAME, BACKGROUND_TASK_VARIABLE_NAME);
+        }
+        if (singleFlightFieldName != null && !returnsFuture) {
+            builder.beginControlFlow("if ($L.join($L, $L) == null)", singleFlightFieldName, KEY_VARIABLE_NAME, BACKGROUND_TASK_VARIABLE_NAME);
+            addSubmitStatements(builder, latestTaskFieldName);
+            builder.endControlFlow();
+        } else {
+            addSubmitStatements(builder, latestTaskFieldName);
+        }
+        if (returnsFuture) {
+            builder.addStatement("return $L", FUTURE_VARIABLE_NAME);
+        }
+    }
+
+    private void addStoredResultStatements(CodeBlock.Builder doInBackground, Cached cached,
+                                           String resultCacheFieldName, TypeName resultType) {
+        boolean deliver = !Cached.NONE.equals(cached.deliverTo());
+        doInBackground.addStatement("$T $L = $L.load($L)", StoredResult.class, STORED_RESULT_VARIABLE_NAME,
+                resultCacheFieldName, KEY_VARIABLE_NAME)
+                .beginControlFlow("if ($L != null && $L.isFresh($L))", STORED_RESULT_VARIABLE_NAME,
+                        resultCacheFieldName, STORED_RESULT_VARIABLE_NAME)
+                .addStatement("$T $L = ($T) $L.getValue()", resultType, RESULT_VARIABLE_NAME, resultType, STORED_RESULT_VARIABLE_NAME)
+                .addStatement("$L.complete($L)", FUTURE_VARIABLE_NAME, RESULT_VARIABLE_NAME);
+        if (deliver) {
+            doInBackground.addStatement("$L.this.$L($L)", presenterMetaModel.getName(), cached.deliverTo(), RESULT_VARIABLE_NAME);
+        }
+        doInBackground.addStatement("return")
+                .endControlFlow();
+        if (deliver) {
+            doInBackground.beginControlFlow("if ($L != null)", STORED_RESULT_VARIABLE_NAME)
+                    .addStatement("$L.this.$L(($T) $L.getValue())", presenterMetaModel.getName(), cached.deliverTo(),
+                            resultType, STORED_RESULT_VARIABLE_NAME)
+                    .endControlFlow();
+        }
+    }
+
+    private void addSubmitStatements(MethodSpec.Builder builder, String latestTaskFieldName) {
+        if (latestTaskFieldName != null) {
+            builder.addStatement("$T $L = $L.getAndSet($L)", BACKGROUND_TASK, PREVIOUS_TASK_VARIABLE_NAME,
+                    latestTaskFieldName, BACKGROUND_TASK_VARIABLE_NAME)
+                    .beginControlFlow("if ($L != null)", PREVIOUS_TASK_VARIABLE_NAME)
+                    .addStatement("$L.cancel()", PREVIOUS_TASK_VARIABLE_NAME)
+                    .endControlFlow();
+        }
+        builder.addStatement("$L.submitTo($L)", BACKGROUND_TASK_VARIABLE_NAME, TESELA_EXECUTOR_FIELD_NAME);
+    }
+
+    private void addBackgroundTaskDeclaration(ExecutableElement element, MethodSpec.Builder builder,
+                                              CodeBlock doInBackground, CodeBlock onFinished, boolean checkLiveConsumer) {
+        builder.addCode("$T $L = ", BACKGROUND_TASK, BACKGROUND_TASK_VARIABLE_NAME)
+                .beginControlFlow("new $T($L)", BACKGROUND_TASK, getBackgroundTaskArguments(element, CodeBlock.of("this")))
+                .addCode("@$T\n", OVERRIDE)
+                .beginControlFlow("protected void doInBackground()")
+                .addCode(doInBackground)
+                .endControlFlow();
+
+        if (!onFinished.isEmpty()) {
+            builder.addCode("\n")
+                    .addCode("@$T\n", OVERRIDE)
+                    .beginControlFlow("protected void onFinished()")
+                    .addCode(onFinished)
+                    .endControlFlow();
+        }
+
+        String viewAttributeName = presenterMetaModel.getViewAttributeName();
+        if (checkLiveConsumer && viewAttributeName != null) {
+            builder.addCode("\n")
+                    .addCode("@$T\n", OVERRIDE)
+                    .beginControlFlow("protected boolean hasLiveConsumer()")
+                    .addStatement("return $L == null || $L.isValid()", viewAttributeName, viewAttributeName)
+                    .endControlFlow();
+        }
+
+        Background background = element.getAnnotation(Background.class);
+        if (background.timeoutMs() > 0) {
+            builder.addCode("\n")
+                    .addCode("@$T\n", OVERRIDE)
+                    .beginControlFlow("protected long getTimeoutMs()")
+                    .addStatement("return $LL", background.timeoutMs())
+                    .endControlFlow();
+        }
+        if (!Background.NONE.equals(background.onTimeout())) {
+            ExecutableElement fallback = presenterMetaModel.findTimeoutFallback(element);
+            builder.addCode("\n")
+                    .addCode("@$T\n", OVERRIDE)
+                    .beginControlFlow("protected void onTimeout()")
+                    .addStatement("$L.this.$L($L)", presenterMetaModel.getName(), fallback.getSimpleName().toString(),
+                            fallback.getParameters().isEmpty() ? CodeBlock.of("") : getArgumentsWithoutCancellationToken(element))
+                    .endControlFlow();
+        }
+        addPoolOverride(element, builder);
+        builder.endControlFlow("");
+    }
+
+    private static void addPoolOverride(ExecutableElement element, MethodSpec.Builder builder) {
+        if (hasPool(element)) {
+            builder.addCode("\n")
+                    .addCode("@$T\n", OVERRIDE)
+                    .beginControlFlow("public $T getPool()", String.class)
+                    .addStatement("return $S", element.getAnnotation(Background.class).pool())
+                    .endControlFlow();
+        }
+    }
+
+    private static boolean hasPool(ExecutableElement element) {
+        return !Background.NONE.equals(element.getAnnotation(Background.class).pool());
+    }
+
+    private String addSingleFlightField(ExecutableElement element) {
+        TypeName callType;
+        if (!PresenterMetaModel.returnsFuture(element)) {
+            callType = BACKGROUND_TASK;
+        } else if (element.getTypeParameters().isEmpty()) {
+            callType = TypeName.get(element.getReturnType());
+        } else {
+            callType = TypeName.OBJECT;
+        }
+
+        String fieldName = createFieldName(element, "SingleFlight");
+        typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(SingleFlight.class), callType),
+                fieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T<>()", SingleFlight.class)
+                .build());
+        return fieldName;
+    }
+
+    private String addResultCacheField(ExecutableElement element, Cached cached, TypeName resultType) {
+        String fieldName = createFieldName("s", element, "ResultCache");
+        typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(ResultCache.class), resultType),
+                fieldName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer(getResultCacheInitializer(element, cached))
+                .build());
+        return fieldName;
+    }
+
+    private CodeBlock getResultCacheInitializer(ExecutableElement element, Cached cached) {
+        if (!cached.persistent()) {
+            return CodeBlock.of("new $T<>($LL, $L)", ResultCache.class, cached.ttlMs(), cached.maxEntries());
+        }
+        StringBuilder persistentName = new StringBuilder(presenterMetaModel.getQualifiedName())
+                .append('#')
+                .append(element.getSimpleName())
+                .append('(');
+        for (VariableElement parameter : element.getParameters()) {
+            if (persistentName.charAt(persistentName.length() - 1) != '(') {
+                persistentName.append(',');
+            }
+            persistentName.append(getRawType(TypeName.get(parameter.asType())));
+        }
+        persistentName.append(')');
+        return CodeBlock.of("new $T<>($LL, $L, $S)", ResultCache.class, cached.ttlMs(), cached.maxEntries(), persistentName.toString());
+    }
+
+    private String addLatestTaskField(ExecutableElement element) {
+        String fieldName = createFieldName(element, "LatestTask");
+        typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(AtomicReference.class), BACKGROUND_TASK),
+                fieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T<>()", AtomicReference.class)
+                .build());
+        return fieldName;
+    }
+
+    private static CodeBlock getKeyArguments(ExecutableElement element) {
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        boolean first = true;
+        for (VariableElement parameter : element.getParameters()) {
+            if (isCancellationToken(parameter)) {
+                continue;
+            }
+            if (!first) {
+                arguments.add(",");
+            }
+            arguments.add("$L", parameter.getSimpleName().toString());
+            first = false;
+        }
+        return arguments.build();
+    }
+
+    private static TypeName getRawType(TypeName type) {
+        return type instanceof ParameterizedTypeName ? ((ParameterizedTypeName) type).rawType : type;
+    }
+
     private void createUIWrapperMethods() {
         for (ExecutableElement element : presenterMetaModel.getUiMethods()) {
             createUiWrapperMethod(element);
@@ -172,52 +683,612 @@ public class PresenterGenerator {
     }
 
     private void createUiWrapperMethod(ExecutableElement element) {
+        if (isRateLimited(element)) {
+            createRateLimitedUiWrapperMethod(element);
+            return;
+        }
+        if (element.getAnnotation(UI.class).conflate()) {
+            createConflatedUiWrapperMethod(element);
+            return;
+        }
+
         MethodSpec.Builder builder = overriding(element, UI);
 
         builder.beginControlFlow("if ($L.isMainCurrentThread())", TESELA_EXECUTOR_FIELD_NAME);
-        addSuperCallStatement(element, builder, false);
+        addMonitoredUICall(element, builder, false, getArguments(element), null);
+
+        if (callGraph.isFused(element)) {
+            builder.endControlFlow()
+                    .addCode("// Only starts background work, so it doesn't hop to the UI thread\n")
+                    .beginControlFlow("else if ($L)", getUIGuard(CodeBlock.of("$T.currentToken()", BACKGROUND_TASK)));
+            for (CallGraph.Call call : callGraph.getCalls(element)) {
+                builder.addStatement("$N($L)", getSubmitMethod(call.getTarget()), call.getArgumentsSource());
+            }
+            builder.endControlFlow();
+            typeBuilder.addMethod(builder.build());
+            return;
+        }
+
+        if (canUsePooledTask(element)) {
+            builder.endControlFlow()
+                    .beginControlFlow("else");
+            String taskVariable = addPooledTaskStatements(element, builder, false);
+            builder.addStatement("$L.executeInUIThread($L)", TESELA_EXECUTOR_FIELD_NAME, taskVariable)
+                    .endControlFlow();
+            typeBuilder.addMethod(builder.build());
+            return;
+        }
+
+        if (canUseDispatcher(element)) {
+            uiDispatchedMethods.add(element);
+            builder.endControlFlow()
+                    .beginControlFlow("else")
+                    .addStatement("$L.executeInUIThread(new $T($L, $L))", TESELA_EXECUTOR_FIELD_NAME,
+                            getDispatcherClassName(UI_DISPATCHER_NAME), uiDispatchedMethods.size() - 1,
+                            getPackedArguments(element, null))
+                    .endControlFlow();
+            typeBuilder.addMethod(builder.build());
+            return;
+        }
 
         builder.endControlFlow()
                 .beginControlFlow("else")
+                .addStatement("final $T $L = $T.currentToken()", CANCELLATION_TOKEN, ORIGIN_VARIABLE_NAME, BACKGROUND_TASK)
+                .addStatement("final long $L = $T.now()", POSTED_AT_VARIABLE_NAME, MONITORING)
                 .beginControlFlow("$L.executeInUIThread(new Runnable()", TESELA_EXECUTOR_FIELD_NAME)
-                .beginControlFlow("public void run()");
+                .beginControlFlow("public void run()")
+                .beginControlFlow("if ($L)", getUIGuard(CodeBlock.of("$L", ORIGIN_VARIABLE_NAME)));
+        addMonitoredUICall(element, builder, true, getArguments(element), POSTED_AT_VARIABLE_NAME);
+        builder.endControlFlow()
+                .endControlFlow()
+                .endControlFlow(")")
+                .endControlFlow();
 
+        typeBuilder.addMethod(builder.build());
+    }
+
+    private void createRateLimitedUiWrapperMethod(ExecutableElement element) {
+        MethodSpec.Builder dispatchBuilder = createDispatchMethodBuilder(element)
+                .addParameter(CANCELLATION_TOKEN, ORIGIN_VARIABLE_NAME, Modifier.FINAL)
+                .addStatement("final long $L = $T.now()", POSTED_AT_VARIABLE_NAME, MONITORING)
+                .beginControlFlow("$L.executeInUIThread(new Runnable()", TESELA_EXECUTOR_FIELD_NAME)
+                .beginControlFlow("public void run()")
+                .beginControlFlow("if ($L)", getUIGuard(CodeBlock.of("$L", ORIGIN_VARIABLE_NAME)));
+        addMonitoredUICall(element, dispatchBuilder, true, getArguments(element), POSTED_AT_VARIABLE_NAME);
+        dispatchBuilder.endControlFlow()
+                .endControlFlow()
+                .endControlFlow(")");
+        MethodSpec dispatchMethod = dispatchBuilder.build();
+        typeBuilder.addMethod(dispatchMethod);
+
+        CodeBlock.Builder offeredArguments = CodeBlock.builder();
+        if (!element.getParameters().isEmpty()) {
+            offeredArguments.add("$L,", getArguments(element));
+        }
+        offeredArguments.add("$T.currentToken()", BACKGROUND_TASK);
+
+        String rateLimiterFieldName = addRateLimiterField(element, dispatchMethod, true);
+        typeBuilder.addMethod(overriding(element, UI)
+                .addStatement("$L.offer(new $T[]{$L})", rateLimiterFieldName, Object.class, offeredArguments.build())
+                .build());
+    }
+
+    /**
+     * Condition a @UI call must meet when it finally runs on the UI thread: the background task
+     * that made the call must not have been cancelled and the view must still be alive.
+     */
+    private CodeBlock getUIGuard(CodeBlock origin) {
         String viewAttributeName = presenterMetaModel.getViewAttributeName();
-        if (viewAttributeName != null) {
-            builder.beginControlFlow("if ($L.isValid())", viewAttributeName);
+        if (viewAttributeName == null) {
+            return CodeBlock.of("!$L.isCancelled()", origin);
+        }
+        return CodeBlock.of("!$L.isCancelled() && $L.isValid()", origin, viewAttributeName);
+    }
+
+    private void createConflatedUiWrapperMethod(ExecutableElement element) {
+        String conflatedCallFieldName = createFieldName(element, "ConflatedCall");
+        typeBuilder.addField(FieldSpec.builder(ConflatedCall.class, conflatedCallFieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T()", ConflatedCall.class)
+                .build());
+
+        MethodSpec.Builder builder = overriding(element, UI);
+
+        builder.beginControlFlow("if ($L.isMainCurrentThread())", TESELA_EXECUTOR_FIELD_NAME);
+        addMonitoredUICall(element, builder, false, getArguments(element), null);
+
+        CodeBlock.Builder offeredArguments = CodeBlock.builder();
+        if (!element.getParameters().isEmpty()) {
+            offeredArguments.add("$L,", getArguments(element));
         }
+        offeredArguments.add("$T.currentToken()", BACKGROUND_TASK);
+        CodeBlock origin = CodeBlock.of("(($T) arguments[$L])", CANCELLATION_TOKEN, element.getParameters().size());
 
-        addSuperCallStatement(element, builder, true);
+        builder.endControlFlow()
+                .beginControlFlow("else if ($L.offer(new $T[]{$L}))", conflatedCallFieldName, Object.class, offeredArguments.build())
+                .addStatement("final long $L = $T.now()", POSTED_AT_VARIABLE_NAME, MONITORING)
+                .beginControlFlow("$L.executeInUIThread(new Runnable()", TESELA_EXECUTOR_FIELD_NAME)
+                .beginControlFlow("public void run()")
+                .addStatement("$T[] arguments = $L.take()", Object.class, conflatedCallFieldName)
+                .beginControlFlow("if ($L)", getUIGuard(origin));
+        addMonitoredUICall(element, builder, true, getUnpackedArguments(element, "arguments"), POSTED_AT_VARIABLE_NAME);
         builder.endControlFlow()
                 .endControlFlow()
-                .endControlFlow(")");
+                .endControlFlow(")")
+                .endControlFlow();
 
-        if (viewAttributeName != null) {
-            builder.endControlFlow();
+        if (hasGenericParameters(element)) {
+            builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
         }
 
         typeBuilder.addMethod(builder.build());
     }
 
-    private void addSuperCallStatement(ExecutableElement element, MethodSpec.Builder builder, boolean includeType) {
-        StringBuilder variablesString = new StringBuilder();
-        for (VariableElement parameters : element.getParameters()) {
-            variablesString.append(parameters.getSimpleName().toString())
-                    .append(",");
+    private boolean canUsePooledTask(ExecutableElement element) {
+        return dispatchMode == DispatchMode.POOLED
+                && element.getTypeParameters().isEmpty()
+                && !hasGenericParameters(element);
+    }
+
+    private boolean canUseDispatcher(ExecutableElement element) {
+        return dispatchMode == DispatchMode.SWITCH
+                && element.getTypeParameters().isEmpty();
+    }
+
+    private static boolean hasBackgroundInterceptors(ExecutableElement element) {
+        Background background = element.getAnnotation(Background.class);
+        return PresenterMetaModel.returnsFuture(element)
+                || background.dedupe()
+                || element.getAnnotation(Cached.class) != null
+                || background.mode() == Background.Mode.LATEST
+                || background.timeoutMs() > 0;
+    }
+
+    private String addPooledTaskStatements(ExecutableElement element, MethodSpec.Builder builder, boolean background) {
+        ClassName taskClassName = createPooledTaskType(element);
+        String poolFieldName = createFieldName(element, "TaskPool");
+        typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(TaskPool.class), taskClassName),
+                poolFieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T<>()", TaskPool.class)
+                .build());
+        if (background) {
+            typeBuilder.addType(createPooledBackgroundTaskTypeSpec(element, taskClassName, poolFieldName));
+        } else {
+            typeBuilder.addType(createPooledUITaskTypeSpec(element, taskClassName, poolFieldName));
+        }
+
+        builder.addStatement("$T $L = $L.acquire()", taskClassName, POOLED_TASK_VARIABLE_NAME, poolFieldName)
+                .beginControlFlow("if ($L == null)", POOLED_TASK_VARIABLE_NAME)
+                .addStatement("$L = new $T()", POOLED_TASK_VARIABLE_NAME, taskClassName)
+                .endControlFlow();
+        for (VariableElement parameter : element.getParameters()) {
+            if (background && isCancellationToken(parameter)) {
+                continue;
+            }
+            builder.addStatement("$L.$L = $L", POOLED_TASK_VARIABLE_NAME, parameter.getSimpleName().toString(), parameter.getSimpleName().toString());
+        }
+        if (!background) {
+            builder.addStatement("$L.$L = $T.holdCurrentToken()", POOLED_TASK_VARIABLE_NAME, ORIGIN_VARIABLE_NAME, BACKGROUND_TASK)
+                    .addStatement("$L.$L = $T.now()", POOLED_TASK_VARIABLE_NAME, POSTED_AT_VARIABLE_NAME, MONITORING);
+        }
+        return POOLED_TASK_VARIABLE_NAME;
+    }
+
+    /**
+     * In switch dispatch mode the plain @Background and @UI methods of a presenter share one nested
+     * class per kind of hop, which picks the method to run by its index, instead of each call site
+     * declaring its own anonymous class.
+     */
+    private void createDispatcherTypes() {
+        if (!backgroundDispatchedMethods.isEmpty()) {
+            typeBuilder.addType(createBackgroundDispatcherTypeSpec());
+        }
+        if (!uiDispatchedMethods.isEmpty()) {
+            typeBuilder.addType(createUIDispatcherTypeSpec());
+        }
+    }
+
+    private TypeSpec createBackgroundDispatcherTypeSpec() {
+        MethodSpec.Builder doInBackgroundBuilder = MethodSpec.methodBuilder("doInBackground")
+                .addAnnotation(OVERRIDE)
+                .addModifiers(Modifier.PROTECTED)
+                .beginControlFlow("switch (methodId)");
+        boolean unchecked = false;
+        for (int i = 0; i < backgroundDispatchedMethods.size(); i++) {
+            ExecutableElement element = backgroundDispatchedMethods.get(i);
+            unchecked |= hasGenericParameters(element);
+            doInBackgroundBuilder.beginControlFlow("case $L:", i);
+            addSuperCallStatement(element, doInBackgroundBuilder, true,
+                    getUnpackedArguments(element, "arguments", CodeBlock.of("this")));
+            doInBackgroundBuilder.addStatement("break")
+                    .endControlFlow();
+        }
+        doInBackgroundBuilder.endControlFlow();
+        addUncheckedSuppression(doInBackgroundBuilder, unchecked);
+
+        TypeSpec.Builder dispatcherBuilder = TypeSpec.classBuilder(getDispatcherClassName(BACKGROUND_DISPATCHER_NAME).simpleName())
+                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .superclass(BACKGROUND_TASK)
+                .addField(TypeName.INT, "methodId", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(Object[].class, "arguments", Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(TypeName.INT, "methodId")
+                        .addParameter(Object[].class, "arguments")
+                        .addParameter(String.class, "name")
+                        .addParameter(String.class, "tag")
+                        .addParameter(Priority.class, "priority")
+                        .addStatement("super($L.this, name, tag, priority)", presenterMetaModel.getName())
+                        .addStatement("this.methodId = methodId")
+                        .addStatement("this.arguments = arguments")
+                        .build())
+                .addMethod(doInBackgroundBuilder.build());
+
+        String viewAttributeName = presenterMetaModel.getViewAttributeName();
+        if (viewAttributeName != null) {
+            dispatcherBuilder.addMethod(MethodSpec.methodBuilder("hasLiveConsumer")
+                    .addAnnotation(OVERRIDE)
+                    .addModifiers(Modifier.PROTECTED)
+                    .returns(TypeName.BOOLEAN)
+                    .addStatement("return $L == null || $L.isValid()", viewAttributeName, viewAttributeName)
+                    .build());
+        }
+        return dispatcherBuilder.build();
+    }
+
+    private TypeSpec createUIDispatcherTypeSpec() {
+        MethodSpec.Builder runBuilder = MethodSpec.methodBuilder("run")
+                .addAnnotation(OVERRIDE)
+                .addModifiers(Modifier.PUBLIC)
+                .beginControlFlow("if ($L)", getUIGuard(CodeBlock.of("$L", ORIGIN_VARIABLE_NAME)))
+                .beginControlFlow("switch (methodId)");
+        boolean unchecked = false;
+        for (int i = 0; i < uiDispatchedMethods.size(); i++) {
+            ExecutableElement element = uiDispatchedMethods.get(i);
+            unchecked |= hasGenericParameters(element);
+            runBuilder.beginControlFlow("case $L:", i);
+            addMonitoredUICall(element, runBuilder, true, getUnpackedArguments(element, "arguments"), POSTED_AT_VARIABLE_NAME);
+            runBuilder.addStatement("break")
+                    .endControlFlow();
+        }
+        runBuilder.endControlFlow()
+                .endControlFlow();
+        addUncheckedSuppression(runBuilder, unchecked);
+
+        return TypeSpec.classBuilder(getDispatcherClassName(UI_DISPATCHER_NAME).simpleName())
+                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .addSuperinterface(Runnable.class)
+                .addField(TypeName.INT, "methodId", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(Object[].class, "arguments", Modifier.PRIVATE, Modifier.FINAL)
+                .addField(CANCELLATION_TOKEN, ORIGIN_VARIABLE_NAME, Modifier.PRIVATE, Modifier.FINAL)
+                .addField(TypeName.LONG, POSTED_AT_VARIABLE_NAME, Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addParameter(TypeName.INT, "methodId")
+                        .addParameter(Object[].class, "arguments")
+                        .addStatement("this.methodId = methodId")
+                        .addStatement("this.arguments = arguments")
+                        .addStatement("this.$L = $T.currentToken()", ORIGIN_VARIABLE_NAME, BACKGROUND_TASK)
+                        .addStatement("this.$L = $T.now()", POSTED_AT_VARIABLE_NAME, MONITORING)
+                        .build())
+                .addMethod(runBuilder.build())
+                .build();
+    }
+
+    private ClassName getDispatcherClassName(String simpleName) {
+        return ClassName.get(presenterMetaModel.getPackageName(), presenterMetaModel.getName(), simpleName);
+    }
+
+    private static void addUncheckedSuppression(MethodSpec.Builder builder, boolean unchecked) {
+        if (unchecked) {
+            builder.addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                    .addMember("value", "$S", "unchecked")
+                    .build());
         }
-        if (variablesString.length() > 0) {
-            variablesString.delete(variablesString.length() - 1, variablesString.length());
+    }
+
+    private ClassName createPooledTaskType(ExecutableElement element) {
+        String methodName = element.getSimpleName().toString();
+        String baseName = Character.toUpperCase(methodName.charAt(0)) + methodName.substring(1) + "Task";
+        String typeName = baseName;
+        int index = 1;
+        while (!typeNames.add(typeName)) {
+            typeName = baseName + index++;
         }
+        return ClassName.get(presenterMetaModel.getPackageName(), presenterMetaModel.getName(), typeName);
+    }
+
+    private TypeSpec createPooledBackgroundTaskTypeSpec(ExecutableElement element, ClassName taskClassName, String poolFieldName) {
+        TypeSpec.Builder taskBuilder = TypeSpec.classBuilder(taskClassName.simpleName())
+                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .superclass(BACKGROUND_TASK)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addStatement("super($L)", getBackgroundTaskArguments(element, CodeBlock.of("$L.this", presenterMetaModel.getName())))
+                        .build());
+        MethodSpec.Builder doInBackgroundBuilder = MethodSpec.methodBuilder("doInBackground")
+                .addAnnotation(OVERRIDE)
+                .addModifiers(Modifier.PROTECTED);
+        MethodSpec.Builder onFinishedBuilder = MethodSpec.methodBuilder("onFinished")
+                .addAnnotation(OVERRIDE)
+                .addModifiers(Modifier.PROTECTED);
+        boolean holdsReferences = false;
+
+        for (VariableElement parameter : element.getParameters()) {
+            if (isCancellationToken(parameter)) {
+                continue;
+            }
+            TypeName type = TypeName.get(parameter.asType());
+            String name = parameter.getSimpleName().toString();
+            taskBuilder.addField(type, name, Modifier.PRIVATE);
+            if (!type.isPrimitive()) {
+                onFinishedBuilder.addStatement("$L = null", name);
+                holdsReferences = true;
+            }
+        }
+        addSuperCallStatement(element, doInBackgroundBuilder, true, getArguments(element, CodeBlock.of("getToken()")));
+
+        taskBuilder.addMethod(doInBackgroundBuilder.build());
+        if (holdsReferences) {
+            taskBuilder.addMethod(onFinishedBuilder.build());
+        }
+        taskBuilder.addMethod(MethodSpec.methodBuilder("isRecycled")
+                        .addAnnotation(OVERRIDE)
+                        .addModifiers(Modifier.PROTECTED)
+                        .returns(TypeName.BOOLEAN)
+                        .addStatement("return true")
+                        .build())
+                .addMethod(MethodSpec.methodBuilder("onRecycled")
+                        .addAnnotation(OVERRIDE)
+                        .addModifiers(Modifier.PROTECTED)
+                        .addStatement("$L.release(this)", poolFieldName)
+                        .build());
+
+        if (hasPool(element)) {
+            taskBuilder.addMethod(MethodSpec.methodBuilder("getPool")
+                    .addAnnotation(OVERRIDE)
+                    .addModifiers(Modifier.PUBLIC)
+                    .returns(String.class)
+                    .addStatement("return $S", element.getAnnotation(Background.class).pool())
+                    .build());
+        }
+
+        String viewAttributeName = presenterMetaModel.getViewAttributeName();
+        if (viewAttributeName != null) {
+            taskBuilder.addMethod(MethodSpec.methodBuilder("hasLiveConsumer")
+                    .addAnnotation(OVERRIDE)
+                    .addModifiers(Modifier.PROTECTED)
+                    .returns(TypeName.BOOLEAN)
+                    .addStatement("return $L == null || $L.isValid()", viewAttributeName, viewAttributeName)
+                    .build());
+        }
+        return taskBuilder.build();
+    }
+
+    private CodeBlock getBackgroundTaskArguments(ExecutableElement element, CodeBlock owner) {
+        Background background = element.getAnnotation(Background.class);
+        if (isQueueLimited(element)) {
+            return CodeBlock.of("$L, $S, $S, $T.$L, $L", owner, getMonitoredName(element), background.tag(),
+                    Priority.class, background.priority().name(), getQueueLimitFieldName(element));
+        }
+        if (background.priority() == Priority.NORMAL) {
+            return CodeBlock.of("$L, $S, $S", owner, getMonitoredName(element), background.tag());
+        }
+        return CodeBlock.of("$L, $S, $S, $T.$L", owner, getMonitoredName(element), background.tag(),
+                Priority.class, background.priority().name());
+    }
+
+    private static boolean isQueueLimited(ExecutableElement element) {
+        return element.getAnnotation(Background.class).capacity() != Background.UNBOUNDED;
+    }
+
+    /**
+     * Queue limits are constants, so each bounded method shares a single instance among all its
+     * tasks.
+     */
+    private String getQueueLimitFieldName(ExecutableElement element) {
+        String fieldName = queueLimitFieldNames.get(element);
+        if (fieldName == null) {
+            Background background = element.getAnnotation(Background.class);
+            fieldName = createFieldName("s", element, "QueueLimit");
+            typeBuilder.addField(FieldSpec.builder(QueueLimit.class, fieldName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                    .initializer("new $T($L, $T.$L, $LL)", QueueLimit.class, background.capacity(), Overflow.class,
+                            background.overflow().name(), background.overflowTimeoutMs())
+                    .build());
+            queueLimitFieldNames.put(element, fieldName);
+        }
+        return fieldName;
+    }
+
+    private TypeSpec createPooledUITaskTypeSpec(ExecutableElement element, ClassName taskClassName, String poolFieldName) {
+        TypeSpec.Builder taskBuilder = TypeSpec.classBuilder(taskClassName.simpleName())
+                .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+                .addSuperinterface(Runnable.class);
+        MethodSpec.Builder runBuilder = MethodSpec.methodBuilder("run")
+                .addAnnotation(OVERRIDE)
+                .addModifiers(Modifier.PUBLIC);
+
+        for (VariableElement parameter : element.getParameters()) {
+            TypeName type = TypeName.get(parameter.asType());
+            String name = parameter.getSimpleName().toString();
+            taskBuilder.addField(type, name, Modifier.PRIVATE);
+            runBuilder.addStatement("$T $L = this.$L", type, name, name);
+            if (!type.isPrimitive()) {
+                runBuilder.addStatement("this.$L = null", name);
+            }
+        }
+        taskBuilder.addField(CANCELLATION_TOKEN, ORIGIN_VARIABLE_NAME, Modifier.PRIVATE)
+                .addField(TypeName.LONG, POSTED_AT_VARIABLE_NAME, Modifier.PRIVATE);
+        runBuilder.addStatement("$T $L = this.$L", CANCELLATION_TOKEN, ORIGIN_VARIABLE_NAME, ORIGIN_VARIABLE_NAME)
+                .addStatement("this.$L = null", ORIGIN_VARIABLE_NAME)
+                .addStatement("long $L = this.$L", POSTED_AT_VARIABLE_NAME, POSTED_AT_VARIABLE_NAME)
+                .addStatement("$L.release(this)", poolFieldName)
+                .addStatement("boolean $L = $L", LIVE_VARIABLE_NAME, getUIGuard(CodeBlock.of("$L", ORIGIN_VARIABLE_NAME)))
+                .addStatement("$T.releaseToken($L)", BACKGROUND_TASK, ORIGIN_VARIABLE_NAME)
+                .beginControlFlow("if ($L)", LIVE_VARIABLE_NAME);
+        addMonitoredUICall(element, runBuilder, true, getArguments(element), POSTED_AT_VARIABLE_NAME);
+        runBuilder.endControlFlow();
+
+        return taskBuilder.addMethod(runBuilder.build()).build();
+    }
+
+    private static boolean isCancellationToken(VariableElement parameter) {
+        return TypeName.get(parameter.asType()).equals(CANCELLATION_TOKEN);
+    }
+
+    private String createFieldName(ExecutableElement element, String suffix) {
+        return createFieldName("m", element, suffix);
+    }
+
+    private String createFieldName(String prefix, ExecutableElement element, String suffix) {
+        String methodName = element.getSimpleName().toString();
+        String baseName = prefix + Character.toUpperCase(methodName.charAt(0)) + methodName.substring(1) + suffix;
+        String fieldName = baseName;
+        int index = 1;
+        while (!fieldNames.add(fieldName)) {
+            fieldName = baseName + index++;
+        }
+        return fieldName;
+    }
+
+    private static boolean containsTypeVariable(TypeName type) {
+        if (type instanceof TypeVariableName) {
+            return true;
+        }
+        if (type instanceof ArrayTypeName) {
+            return containsTypeVariable(((ArrayTypeName) type).componentType);
+        }
+        if (type instanceof WildcardTypeName) {
+            WildcardTypeName wildcardType = (WildcardTypeName) type;
+            for (TypeName bound : wildcardType.upperBounds) {
+                if (containsTypeVariable(bound)) {
+                    return true;
+                }
+            }
+            for (TypeName bound : wildcardType.lowerBounds) {
+                if (containsTypeVariable(bound)) {
+                    return true;
+                }
+            }
+        }
+        if (type instanceof ParameterizedTypeName) {
+            for (TypeName typeArgument : ((ParameterizedTypeName) type).typeArguments) {
+                if (containsTypeVariable(typeArgument)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasGenericParameters(ExecutableElement element) {
+        for (VariableElement parameter : element.getParameters()) {
+            TypeName type = TypeName.get(parameter.asType());
+            if (!(type instanceof ClassName) && !type.isPrimitive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static CodeBlock getArguments(ExecutableElement element) {
+        return getArguments(element, null);
+    }
+
+    private static CodeBlock getArguments(ExecutableElement element, CodeBlock cancellationToken) {
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        List<? extends VariableElement> parameters = element.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                arguments.add(",");
+            }
+            if (cancellationToken != null && isCancellationToken(parameters.get(i))) {
+                arguments.add(cancellationToken);
+            } else {
+                arguments.add("$L", parameters.get(i).getSimpleName().toString());
+            }
+        }
+        return arguments.build();
+    }
+
+    private static CodeBlock getArgumentsWithoutCancellationToken(ExecutableElement element) {
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        boolean first = true;
+        for (VariableElement parameter : element.getParameters()) {
+            if (isCancellationToken(parameter)) {
+                continue;
+            }
+            if (!first) {
+                arguments.add(",");
+            }
+            arguments.add("$L", parameter.getSimpleName().toString());
+            first = false;
+        }
+        return arguments.build();
+    }
+
+    private static CodeBlock getPackedArguments(ExecutableElement element, CodeBlock cancellationToken) {
+        if (element.getParameters().isEmpty()) {
+            return CodeBlock.of("null");
+        }
+        return CodeBlock.of("new $T[]{$L}", Object.class, getArguments(element, cancellationToken));
+    }
+
+    private static CodeBlock getUnpackedArguments(ExecutableElement element, String arrayName) {
+        return getUnpackedArguments(element, arrayName, null);
+    }
+
+    private static CodeBlock getUnpackedArguments(ExecutableElement element, String arrayName, CodeBlock cancellationToken) {
+        CodeBlock.Builder arguments = CodeBlock.builder();
+        List<? extends VariableElement> parameters = element.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                arguments.add(",");
+            }
+            if (cancellationToken != null && isCancellationToken(parameters.get(i))) {
+                arguments.add(cancellationToken);
+            } else {
+                arguments.add("($T) $L[$L]", TypeName.get(parameters.get(i).asType()).box(), arrayName, i);
+            }
+        }
+        return arguments.build();
+    }
+
+    /**
+     * Runs a @UI method and reports it to the installed monitor, if any. Calls made on the UI
+     * thread have not been posted, so they count as posted when they start.
+     */
+    private void addMonitoredUICall(ExecutableElement element, MethodSpec.Builder builder, boolean includeType,
+                                    CodeBlock arguments, String postedAtVariable) {
+        builder.addStatement("long $L = $T.now()", STARTED_AT_VARIABLE_NAME, MONITORING);
+        addSuperCallStatement(element, builder, includeType, arguments);
+        builder.addStatement("$T.uiCallFinished($S, $L, $L)", MONITORING, getMonitoredName(element),
+                postedAtVariable != null ? postedAtVariable : STARTED_AT_VARIABLE_NAME, STARTED_AT_VARIABLE_NAME);
+    }
+
+    private String getMonitoredName(ExecutableElement element) {
+        return presenterMetaModel.getTypeElement().getSimpleName() + "." + element.getSimpleName();
+    }
+
+    private void addSuperCallStatement(ExecutableElement element, MethodSpec.Builder builder, boolean includeType) {
+        addSuperCallStatement(element, builder, includeType, getArguments(element));
+    }
+
+    private void addSuperCallStatement(ExecutableElement element, MethodSpec.Builder builder, boolean includeType, CodeBlock variablesString) {
         if (element.getKind() == ElementKind.CONSTRUCTOR) {
             builder.addStatement("super($L)",
                     variablesString);
-        } else if (includeType) {
-            builder.addStatement("$L.super.$L($L)",
+        } else {
+            builder.addStatement("$L", getSuperCall(element, includeType, variablesString));
+        }
+    }
+
+    private CodeBlock getSuperCall(ExecutableElement element, boolean includeType, CodeBlock variablesString) {
+        if (includeType) {
+            return CodeBlock.of("$L.super.$L($L)",
                     presenterMetaModel.getName(),
                     element.getSimpleName().toString(),
                     variablesString);
         } else {
-            builder.addStatement("super.$L($L)",
+            return CodeBlock.of("super.$L($L)",
                     element.getSimpleName().toString(),
                     variablesString);
         }
@@ -232,7 +1303,9 @@ public class PresenterGenerator {
         methodBuilder.addAnnotation(OVERRIDE);
         for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
             AnnotationSpec annotationSpec = AnnotationSpec.get(mirror);
-            if (annotationSpec.type.equals(OVERRIDE) || annotationSpec.type.equals(excludeAnnotation)) {
+            if (annotationSpec.type.equals(OVERRIDE) || annotationSpec.type.equals(excludeAnnotation)
+                    || annotationSpec.type.equals(DEBOUNCE) || annotationSpec.type.equals(THROTTLE)
+                    || annotationSpec.type.equals(BATCHED) || annotationSpec.type.equals(CACHED)) {
                 continue;
             }
             methodBuilder.addAnnotation(annotationSpec);
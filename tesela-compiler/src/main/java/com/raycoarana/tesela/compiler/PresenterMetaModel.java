@@ -15,27 +15,45 @@
 */
 package com.raycoarana.tesela.compiler;
 
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.annotations.Background;
+import com.raycoarana.tesela.annotations.Batched;
+import com.raycoarana.tesela.annotations.Cached;
+import com.raycoarana.tesela.annotations.Debounce;
+import com.raycoarana.tesela.annotations.Throttle;
+import com.raycoarana.tesela.annotations.UI;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
 import javax.tools.Diagnostic;
 
 public class PresenterMetaModel {
 
+    private static final String TESELA_FUTURE = "com.raycoarana.tesela.TeselaFuture";
+    private static final String COMPLETABLE_FUTURE = "java.util.concurrent.CompletableFuture";
+    private static final String CANCELLATION_TOKEN = "com.raycoarana.tesela.CancellationToken";
+    private static final List<String> BATCH_TYPES = Arrays.asList("java.util.List", "java.util.Collection", "java.lang.Iterable");
+
     private final TypeElement presenterTypeElement;
     private final Elements elementUtils;
     private final Messager messager;
     private final List<ExecutableElement> backgroundMethods = new ArrayList<>();
     private final List<ExecutableElement> uiMethods = new ArrayList<>();
     private VariableElement viewAttribute;
+    private boolean valid = true;
 
     public PresenterMetaModel(TypeElement presenterTypeElement, Elements elementUtils, Messager messager) {
         this.presenterTypeElement = presenterTypeElement;
@@ -51,6 +69,10 @@ public class PresenterMetaModel {
         return presenterTypeElement;
     }
 
+    public String getQualifiedName() {
+        return presenterTypeElement.getQualifiedName().toString();
+    }
+
     public String getName() {
         return "Tesela" + presenterTypeElement.getSimpleName().toString();
     }
@@ -83,16 +105,59 @@ public class PresenterMetaModel {
         return viewAttribute != null ? viewAttribute.getSimpleName().toString() : null;
     }
 
-    public void validate() {
+    public boolean validate() {
         validateBackgroundMethodsHasCorrectModifier();
         validateUIMethodsHasCorrectModifier();
 
-        if (viewAttribute.getModifiers().contains(Modifier.PRIVATE)) {
+        if (viewAttribute != null && viewAttribute.getModifiers().contains(Modifier.PRIVATE)) {
             throw new IllegalStateException("@ViewReference attribute can't be private");
         }
 
-        validateMethodReturnType(getBackgroundMethods());
+        validateBackgroundMethodReturnType(getBackgroundMethods());
         validateMethodReturnType(getUiMethods());
+        validateCachedMethods(getBackgroundMethods());
+        validateRateLimitedMethods(getBackgroundMethods());
+        validateRateLimitedMethods(getUiMethods());
+        validateBatchedMethods(getBackgroundMethods());
+        validateQueueLimits(getBackgroundMethods());
+        validateTimeouts(getBackgroundMethods());
+
+        return valid;
+    }
+
+    public static boolean returnsFuture(ExecutableElement method) {
+        String typeName = getReturnTypeName(method);
+        return TESELA_FUTURE.equals(typeName) || COMPLETABLE_FUTURE.equals(typeName);
+    }
+
+    public static boolean returnsTeselaFuture(ExecutableElement method) {
+        return TESELA_FUTURE.equals(getReturnTypeName(method));
+    }
+
+    /**
+     * Whether calls to a @Background method are submitted from any thread. Plain methods run inline
+     * when called from a background thread, but futures, caching, dedupe, latest wins, timeouts and
+     * pools only apply to submitted work, and batched or rate limited calls are always deferred.
+     */
+    public static boolean isAlwaysSubmitted(ExecutableElement method) {
+        Background background = method.getAnnotation(Background.class);
+        return returnsFuture(method)
+                || background.dedupe()
+                || background.mode() == Background.Mode.LATEST
+                || background.timeoutMs() > 0
+                || !Background.NONE.equals(background.pool())
+                || method.getAnnotation(Cached.class) != null
+                || method.getAnnotation(Batched.class) != null
+                || method.getAnnotation(Debounce.class) != null
+                || method.getAnnotation(Throttle.class) != null;
+    }
+
+    private static String getReturnTypeName(ExecutableElement method) {
+        TypeMirror returnType = method.getReturnType();
+        if (returnType.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        return ((TypeElement) ((DeclaredType) returnType).asElement()).getQualifiedName().toString();
     }
 
     private void validateBackgroundMethodsHasCorrectModifier() {
@@ -116,15 +181,207 @@ public class PresenterMetaModel {
     }
 
     private void printBadModifier(ExecutableElement element, String modifier) {
+        valid = false;
         messager.printMessage(Diagnostic.Kind.ERROR,
                 String.format("Method %s in %s can't be %s", element.getSimpleName().toString(), presenterTypeElement.getSimpleName().toString(), modifier));
     }
 
+    private void validateBackgroundMethodReturnType(List<ExecutableElement> methods) {
+        for (ExecutableElement method : methods) {
+            if (method.getReturnType().getKind() != TypeKind.VOID && !returnsFuture(method)) {
+                printError(method, "must return void, TeselaFuture or CompletableFuture");
+            }
+        }
+    }
+
     private void validateMethodReturnType(List<ExecutableElement> methods) {
         for (ExecutableElement method : methods) {
-            if (method.getReturnType().getKind() != TypeKind.NONE) {
-                throw new IllegalStateException("Method must not return anything");
+            if (method.getReturnType().getKind() != TypeKind.VOID) {
+                printError(method, "must not return anything");
+            }
+        }
+    }
+
+    private void validateCachedMethods(List<ExecutableElement> methods) {
+        for (ExecutableElement method : methods) {
+            Cached cached = method.getAnnotation(Cached.class);
+            if (cached == null) {
+                continue;
+            }
+
+            if (!returnsFuture(method)) {
+                printError(method, "must return TeselaFuture or CompletableFuture to be @Cached");
+                continue;
+            }
+            List<? extends TypeMirror> typeArguments = ((DeclaredType) method.getReturnType()).getTypeArguments();
+            if (typeArguments.isEmpty() || typeArguments.get(0).getKind() == TypeKind.WILDCARD) {
+                printError(method, "must declare the type of its result to be @Cached");
+            }
+            if (cached.maxEntries() <= 0) {
+                printError(method, "must keep at least one @Cached entry");
+            }
+            if (!Cached.NONE.equals(cached.deliverTo()) && findDeliveryMethod(cached.deliverTo()) == null) {
+                printError(method, "delivers to " + cached.deliverTo() + ", which is not a @UI method with a single parameter");
+            }
+        }
+    }
+
+    private void validateRateLimitedMethods(List<ExecutableElement> methods) {
+        for (ExecutableElement method : methods) {
+            Debounce debounce = method.getAnnotation(Debounce.class);
+            Throttle throttle = method.getAnnotation(Throttle.class);
+            if (debounce == null && throttle == null) {
+                continue;
+            }
+
+            if (debounce != null && throttle != null) {
+                printError(method, "can't be both @Debounce and @Throttle");
+            } else if ((debounce != null ? debounce.value() : throttle.value()) <= 0) {
+                printError(method, "must be rate limited by a positive number of milliseconds");
+            }
+            if (method.getReturnType().getKind() != TypeKind.VOID) {
+                printError(method, "must return void to be rate limited");
+            }
+            if (!method.getTypeParameters().isEmpty()) {
+                printError(method, "can't declare type parameters and be rate limited");
+            }
+            UI ui = method.getAnnotation(UI.class);
+            if (ui != null && ui.conflate()) {
+                printError(method, "can't be conflated and rate limited");
+            }
+        }
+    }
+
+    private void validateBatchedMethods(List<ExecutableElement> methods) {
+        for (ExecutableElement method : methods) {
+            Batched batched = method.getAnnotation(Batched.class);
+            if (batched == null) {
+                continue;
+            }
+
+            if (method.getParameters().size() != 1 || method.getReturnType().getKind() != TypeKind.VOID
+                    || !method.getTypeParameters().isEmpty()) {
+                printError(method, "must be a non generic void method with a single parameter to be @Batched");
+            }
+            if (batched.maxSize() <= 0 || batched.maxDelayMs() <= 0) {
+                printError(method, "must have a positive @Batched maxSize and maxDelayMs");
+            }
+            Background background = method.getAnnotation(Background.class);
+            if (background.dedupe() || background.mode() != Background.Mode.ALL
+                    || method.getAnnotation(Debounce.class) != null || method.getAnnotation(Throttle.class) != null) {
+                printError(method, "can't be @Batched and deduplicated, latest-wins or rate limited");
+            }
+            if (findBatchTarget(batched.target()) == null) {
+                printError(method, "is batched to " + batched.target() + ", which is not a method with a single List parameter");
+            }
+        }
+    }
+
+    private void validateQueueLimits(List<ExecutableElement> methods) {
+        for (ExecutableElement method : methods) {
+            Background background = method.getAnnotation(Background.class);
+            if (background.capacity() == Background.UNBOUNDED) {
+                continue;
+            }
+
+            if (background.capacity() < 0) {
+                printError(method, "must declare a positive queue capacity");
+            }
+            if (Background.NONE.equals(background.tag())) {
+                printError(method, "must declare a tag to bound its queue");
+            }
+            if (background.overflow() == Overflow.BLOCK && background.overflowTimeoutMs() <= 0) {
+                printError(method, "must declare a positive overflowTimeoutMs to block on overflow");
+            }
+            if ((background.overflow() == Overflow.CALLER_RUNS || background.overflow() == Overflow.BLOCK)
+                    && (method.getAnnotation(Batched.class) != null || method.getAnnotation(Debounce.class) != null
+                    || method.getAnnotation(Throttle.class) != null)) {
+                printError(method, "can't run or wait on overflow, its calls are submitted from the timer thread");
+            }
+        }
+    }
+
+    private void validateTimeouts(List<ExecutableElement> methods) {
+        for (ExecutableElement method : methods) {
+            Background background = method.getAnnotation(Background.class);
+            if (background.timeoutMs() == 0 && Background.NONE.equals(background.onTimeout())) {
+                continue;
+            }
+
+            if (background.timeoutMs() <= 0) {
+                printError(method, "must declare a positive timeoutMs");
+            }
+            if (method.getAnnotation(Batched.class) != null) {
+                printError(method, "can't be @Batched and have a timeout");
+            }
+            if (!Background.NONE.equals(background.onTimeout()) && findTimeoutFallback(method) == null) {
+                printError(method, "falls back to " + background.onTimeout()
+                        + " on timeout, which is not a @UI method with no parameters or the same ones");
             }
         }
     }
+
+    /**
+     * The @UI method named by onTimeout. It must take no parameters or the same ones as the
+     * timed out method, leaving out its CancellationToken.
+     */
+    public ExecutableElement findTimeoutFallback(ExecutableElement method) {
+        String name = method.getAnnotation(Background.class).onTimeout();
+        List<String> parameterTypes = new ArrayList<>();
+        for (VariableElement parameter : method.getParameters()) {
+            String parameterType = parameter.asType().toString();
+            if (!CANCELLATION_TOKEN.equals(parameterType)) {
+                parameterTypes.add(parameterType);
+            }
+        }
+
+        for (ExecutableElement uiMethod : getUiMethods()) {
+            if (!uiMethod.getSimpleName().contentEquals(name) || !uiMethod.getTypeParameters().isEmpty()) {
+                continue;
+            }
+            List<String> uiParameterTypes = new ArrayList<>();
+            for (VariableElement parameter : uiMethod.getParameters()) {
+                uiParameterTypes.add(parameter.asType().toString());
+            }
+            if (uiParameterTypes.isEmpty() || uiParameterTypes.equals(parameterTypes)) {
+                return uiMethod;
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement findBatchTarget(String name) {
+        for (Element element : presenterTypeElement.getEnclosedElements()) {
+            if (element.getKind() != ElementKind.METHOD || !element.getSimpleName().contentEquals(name)
+                    || element.getModifiers().contains(Modifier.PRIVATE)) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) element;
+            if (method.getParameters().size() != 1) {
+                continue;
+            }
+            TypeMirror parameterType = method.getParameters().get(0).asType();
+            if (parameterType.getKind() == TypeKind.DECLARED
+                    && BATCH_TYPES.contains(((TypeElement) ((DeclaredType) parameterType).asElement()).getQualifiedName().toString())) {
+                return method;
+            }
+        }
+        return null;
+    }
+
+    private ExecutableElement findDeliveryMethod(String name) {
+        for (ExecutableElement uiMethod : getUiMethods()) {
+            if (uiMethod.getSimpleName().contentEquals(name) && uiMethod.getParameters().size() == 1) {
+                return uiMethod;
+            }
+        }
+        return null;
+    }
+
+    private void printError(ExecutableElement element, String message) {
+        valid = false;
+        messager.printMessage(Diagnostic.Kind.ERROR,
+                String.format("Method %s in %s %s", element.getSimpleName().toString(), presenterTypeElement.getSimpleName().toString(), message),
+                element);
+    }
 }
@@ -55,8 +55,4 @@ public class PresentersMap {
     public Collection<PresenterMetaModel> all() {
         return presenterMetaModelMap.values();
     }
-
-    public void clear() {
-        presenterMetaModelMap.clear();
-    }
 }
@@ -15,13 +15,23 @@
 */
 package com.raycoarana.tesela.compiler;
 
+import com.raycoarana.tesela.annotations.Background;
+import com.raycoarana.tesela.annotations.UI;
+import com.sun.source.util.Trees;
+
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
@@ -32,46 +42,132 @@ import javax.tools.Diagnostic;
 
 @SupportedAnnotationTypes({
         "com.raycoarana.tesela.annotations.Background",
+        "com.raycoarana.tesela.annotations.Batched",
+        "com.raycoarana.tesela.annotations.Cached",
+        "com.raycoarana.tesela.annotations.Debounce",
+        "com.raycoarana.tesela.annotations.Throttle",
         "com.raycoarana.tesela.annotations.UI",
         "com.raycoarana.tesela.annotations.View",
         "com.raycoarana.tesela.annotations.ViewReference",
 })
+@SupportedOptions({DispatchMode.OPTION, HopReport.OPTION})
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public class TeselaProcessor extends AbstractProcessor {
 
-    private static int round = 0;
-
-    private PresentersMap presentersMap = new PresentersMap();
+    private final Set<String> processedTypeNames = new HashSet<>();
+    private DispatchMode dispatchMode;
+    private boolean hopReport;
+    private Trees trees;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
-        presentersMap.init(processingEnv.getElementUtils(), processingEnv.getMessager());
+        dispatchMode = DispatchMode.from(processingEnv.getOptions().get(DispatchMode.OPTION));
+        hopReport = Boolean.parseBoolean(processingEnv.getOptions().get(HopReport.OPTION));
+        List<String> unreadableFields = new ArrayList<>();
+        trees = getTrees(processingEnv, new HashSet<ProcessingEnvironment>(), unreadableFields);
+        if (trees == null) {
+            processingEnv.getMessager().printMessage(hopReport ? Diagnostic.Kind.WARNING : Diagnostic.Kind.NOTE,
+                    "Tesela can't read method bodies in this compiler, @UI calls won't be fused"
+                            + (hopReport ? " and the hop report will be empty" : "")
+                            + (unreadableFields.isEmpty() ? "" : " (can't read " + unreadableFields + ")"));
+        }
+    }
+
+    /**
+     * Build tools like Gradle hand processors their own ProcessingEnvironment wrapping the javac one,
+     * which Trees doesn't accept. Wrappers are searched through every field holding another
+     * environment, until one of them is accepted. Returns null when no javac environment is found,
+     * as with the Eclipse compiler, adding the fields that couldn't be read to the given list.
+     */
+    static Trees getTrees(ProcessingEnvironment processingEnv, Set<ProcessingEnvironment> visited,
+                          List<String> unreadableFields) {
+        if (processingEnv == null || !visited.add(processingEnv)) {
+            return null;
+        }
+        try {
+            return Trees.instance(processingEnv);
+        } catch (IllegalArgumentException e) {
+            // Not javac's own environment, look into the ones it holds
+        }
+
+        for (Class<?> type = processingEnv.getClass(); type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())
+                        || !ProcessingEnvironment.class.isAssignableFrom(field.getType())) {
+                    continue;
+                }
+                ProcessingEnvironment delegate;
+                try {
+                    field.setAccessible(true);
+                    delegate = (ProcessingEnvironment) field.get(processingEnv);
+                } catch (RuntimeException | IllegalAccessException e) {
+                    // InaccessibleObjectException on JDK 16 and newer when the module isn't open
+                    unreadableFields.add(type.getName() + "." + field.getName());
+                    continue;
+                }
+                Trees trees = getTrees(delegate, visited, unreadableFields);
+                if (trees != null) {
+                    return trees;
+                }
+            }
+        }
+        return null;
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        PresentersMap presentersMap = new PresentersMap();
+        presentersMap.init(processingEnv.getElementUtils(), processingEnv.getMessager());
         for (TypeElement typeElement : annotations) {
 
-            if (typeElement.getSimpleName().toString().equals("View")) {
+            String annotationName = typeElement.getSimpleName().toString();
+            if (annotationName.equals("View")) {
                 processView(roundEnv, typeElement);
+            } else if (annotationName.equals("Debounce") || annotationName.equals("Throttle")) {
+                processRateLimited(roundEnv, typeElement);
+            } else if (annotationName.equals("Batched") || annotationName.equals("Cached")) {
+                processBackgroundOnly(roundEnv, typeElement);
             } else {
-                processPresenter(roundEnv, typeElement);
+                processPresenter(roundEnv, typeElement, presentersMap);
             }
         }
 
-        generatePresenters();
+        generatePresenters(presentersMap);
 
         return true;
     }
 
     private void processView(RoundEnvironment roundEnv, TypeElement typeElement) {
         for (Element element : roundEnv.getElementsAnnotatedWith(typeElement)) {
-            WeakViewGenerator.generate((TypeElement) element, processingEnv);
+            TypeElement viewTypeElement = (TypeElement) element;
+            if (processedTypeNames.add(viewTypeElement.getQualifiedName().toString())) {
+                WeakViewGenerator.generate(viewTypeElement, processingEnv);
+            }
+        }
+    }
+
+    private void processRateLimited(RoundEnvironment roundEnv, TypeElement typeElement) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(typeElement)) {
+            if (element.getAnnotation(Background.class) == null && element.getAnnotation(UI.class) == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        String.format("@%s method %s must also be @Background or @UI", typeElement.getSimpleName(), element.getSimpleName()),
+                        element);
+            }
         }
     }
 
-    private void processPresenter(RoundEnvironment roundEnv, TypeElement typeElement) {
+    private void processBackgroundOnly(RoundEnvironment roundEnv, TypeElement typeElement) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(typeElement)) {
+            if (element.getAnnotation(Background.class) == null) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        String.format("@%s method %s must also be @Background", typeElement.getSimpleName(), element.getSimpleName()),
+                        element);
+            }
+        }
+    }
+
+    private void processPresenter(RoundEnvironment roundEnv, TypeElement typeElement, PresentersMap presentersMap) {
         for (Element element : roundEnv.getElementsAnnotatedWith(typeElement)) {
             PresenterMetaModel presenterMetaModel = presentersMap.getOrCreateFrom(element);
 
@@ -89,16 +185,22 @@ public class TeselaProcessor extends AbstractProcessor {
         }
     }
 
-    private void generatePresenters() {
+    private void generatePresenters(PresentersMap presentersMap) {
         for (PresenterMetaModel presenterMetaModel : presentersMap.all()) {
+            if (!processedTypeNames.add(presenterMetaModel.getQualifiedName()) || !presenterMetaModel.validate()) {
+                continue;
+            }
+            CallGraph callGraph = trees != null ? CallGraph.build(presenterMetaModel, trees) : CallGraph.empty();
             try {
-                PresenterGenerator.generate(presenterMetaModel, processingEnv.getFiler());
+                PresenterGenerator.generate(presenterMetaModel, processingEnv.getFiler(), dispatchMode, callGraph);
+                if (hopReport) {
+                    HopReport.write(presenterMetaModel, callGraph, processingEnv.getFiler());
+                }
             } catch (IOException e) {
                 processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, e.getMessage());
                 throw new RuntimeException("Failed to generate " + presenterMetaModel.getName(), e);
             }
         }
-        presentersMap.clear();
     }
 
 }
@@ -0,0 +1,132 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.TeselaFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class BackgroundSubmissionTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.LoadPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.TeselaFuture;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "import java.util.concurrent.CountDownLatch;",
+            "import java.util.concurrent.TimeUnit;",
+            "public class LoadPresenter {",
+            "    public static volatile CountDownLatch release = new CountDownLatch(0);",
+            "    @Background protected TeselaFuture<String> load(String id) throws InterruptedException {",
+            "        return TeselaFuture.completed(waitAndLoad(id));",
+            "    }",
+            "    @Background(dedupe = true) protected TeselaFuture<String> loadOnce(String id) throws InterruptedException {",
+            "        return TeselaFuture.completed(waitAndLoad(id));",
+            "    }",
+            "    private String waitAndLoad(String id) throws InterruptedException {",
+            "        release.await(5, TimeUnit.SECONDS);",
+            "        return id + \"@\" + Events.thread();",
+            "    }",
+            "    @Background protected void plain() { Events.add(\"plain@\" + Events.thread()); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Compilation compilation;
+    private Object presenter;
+
+    public BackgroundSubmissionTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.LoadPresenter");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        getRelease().countDown();
+        harness.close();
+    }
+
+    @Test
+    public void submitsMethodsReturningAFutureFromABackgroundThread() throws Exception {
+        CountDownLatch release = blockLoads();
+        TeselaFuture<?> future = (TeselaFuture<?>) PresenterHarness.call(presenter, "load", "a");
+
+        assertFalse(future.isDone());
+        release.countDown();
+        String result = (String) future.get(5, TimeUnit.SECONDS);
+        assertTrue(result, result.startsWith("a@tesela-"));
+    }
+
+    @Test
+    public void appliesDedupeToCallsFromABackgroundThread() throws Exception {
+        CountDownLatch release = blockLoads();
+        Object first = PresenterHarness.call(presenter, "loadOnce", "a");
+        Object second = PresenterHarness.call(presenter, "loadOnce", "a");
+
+        assertSame(first, second);
+        release.countDown();
+        assertTrue(((String) ((TeselaFuture<?>) first).get(5, TimeUnit.SECONDS)).startsWith("a@"));
+    }
+
+    @Test
+    public void runsPlainMethodsInlineOnABackgroundThread() throws Exception {
+        String thread = Events.thread();
+        PresenterHarness.call(presenter, "plain");
+
+        assertEquals(Arrays.asList("plain@" + thread), Events.get());
+    }
+
+    /** Makes loads wait until the returned latch is counted down. */
+    private CountDownLatch blockLoads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        compilation.loadClass("test.LoadPresenter").getField("release").set(null, release);
+        return release;
+    }
+
+    private CountDownLatch getRelease() throws Exception {
+        return (CountDownLatch) compilation.loadClass("test.LoadPresenter").getField("release").get(null);
+    }
+
+}
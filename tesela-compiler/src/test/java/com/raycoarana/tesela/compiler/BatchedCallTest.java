@@ -0,0 +1,93 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class BatchedCallTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.UploadPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.Batched;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "import java.util.List;",
+            "public class UploadPresenter {",
+            "    @Batched(maxSize = 3, maxDelayMs = 50, target = \"uploadAll\")",
+            "    @Background protected void upload(String item) { }",
+            "    protected void uploadAll(List<String> items) { Events.add(items + \"@\" + Events.thread()); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public BatchedCallTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.UploadPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void runsFullBatchesInOneBackgroundTask() throws Exception {
+        for (String item : new String[]{"a", "b", "c", "d"}) {
+            harness.callOnMain(presenter, "upload", item);
+        }
+
+        String first = Events.await(1).get(0);
+        assertTrue(first, first.startsWith("[a, b, c]@tesela-"));
+        String second = Events.await(2).get(1);
+        assertTrue(second, second.startsWith("[d]@tesela-"));
+    }
+
+    @Test
+    public void sendsTheItemsOfAnExpiredBatch() throws Exception {
+        harness.callOnMain(presenter, "upload", "a");
+
+        String batch = Events.await(1).get(0);
+        assertTrue(batch, batch.startsWith("[a]@tesela-"));
+        Thread.sleep(100);
+        assertEquals(1, Events.get().size());
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class CachedTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.UserPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.TeselaFuture;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.Cached;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class UserPresenter {",
+            "    @Cached @Background protected TeselaFuture<String> loadUser(String id) {",
+            "        Events.add(\"loaded:\" + id);",
+            "        return TeselaFuture.completed(\"user \" + id);",
+            "    }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public CachedTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.UserPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        Tesela.clearCaches();
+        harness.close();
+    }
+
+    @Test
+    public void servesRepeatedCallsFromTheCache() throws Exception {
+        assertEquals("user 1", load("1"));
+        assertEquals("user 1", load("1"));
+        assertEquals("user 2", load("2"));
+
+        assertEquals(Arrays.asList("loaded:1", "loaded:2"), Events.get());
+    }
+
+    @Test
+    public void runsAgainOnceTheCachesAreCleared() throws Exception {
+        load("1");
+        Tesela.clearCaches();
+        load("1");
+
+        assertEquals(Arrays.asList("loaded:1", "loaded:1"), Events.get());
+    }
+
+    @Test
+    public void rejectsCachedMethodsThatAreNotBackground() throws Exception {
+        Compilation compilation = Compilation.compile(dispatchMode, Compilation.source("test.PlainPresenter",
+                "package test;",
+                "import com.raycoarana.tesela.TeselaFuture;",
+                "import com.raycoarana.tesela.annotations.Cached;",
+                "public class PlainPresenter {",
+                "    @Cached protected TeselaFuture<String> load(String id) { return null; }",
+                "}"));
+
+        assertFalse(compilation.succeeded());
+        assertEquals(Arrays.asList("@Cached method load must also be @Background"), compilation.getErrors());
+    }
+
+    private Object load(String id) throws Exception {
+        TeselaFuture<?> future = (TeselaFuture<?>) harness.callOnMain(presenter, "loadUser", id);
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.Tesela;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class CancellationTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.SyncPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.CancellationToken;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class SyncPresenter {",
+            "    @Background(tag = \"sync\") protected void sync(String name, CancellationToken token) {",
+            "        Events.add(\"started:\" + name);",
+            "        while (!token.isCancelled()) { Thread.yield(); }",
+            "        Events.add(\"cancelled:\" + name);",
+            "    }",
+            "    @Background protected void syncInline(String name) { sync(name, null); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public CancellationTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.SyncPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void replacesTheTokenArgumentWithTheOneOfTheCall() throws Exception {
+        harness.callOnMain(presenter, "sync", "a", null);
+        Events.await(1);
+
+        Tesela.cancelTag("sync");
+
+        assertEquals(Arrays.asList("started:a", "cancelled:a"), Events.await(2));
+    }
+
+    @Test
+    public void passesTheTokenOfTheCallingTaskToInlineCalls() throws Exception {
+        harness.callOnMain(presenter, "syncInline", "b");
+        Events.await(1);
+
+        Tesela.cancelPresenter(presenter);
+
+        assertEquals(Arrays.asList("started:b", "cancelled:b"), Events.await(2));
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.processing.Processor;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Compiles sources in process with {@link TeselaProcessor}, against the test classpath, and gives
+ * access to the diagnostics, the generated sources and the compiled classes.
+ */
+final class Compilation {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final boolean success;
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+    private final File sourceOutput;
+    private final File classOutput;
+    private ClassLoader classLoader;
+
+    private Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+                        File sourceOutput, File classOutput) {
+        this.success = success;
+        this.diagnostics = diagnostics;
+        this.sourceOutput = sourceOutput;
+        this.classOutput = classOutput;
+    }
+
+    static JavaFileObject source(String qualifiedName, String... lines) {
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        final String code = content.toString();
+        return new SimpleJavaFileObject(URI.create("string:///" + qualifiedName.replace('.', '/') + ".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    static Compilation compile(JavaFileObject... sources) throws IOException {
+        return compile(DispatchMode.ANONYMOUS, sources);
+    }
+
+    static Compilation compile(DispatchMode dispatchMode, JavaFileObject... sources) throws IOException {
+        return compile(Arrays.asList("-A" + DispatchMode.OPTION + "=" + dispatchMode.name().toLowerCase(Locale.US)), sources);
+    }
+
+    static Compilation compile(List<String> processorOptions, JavaFileObject... sources) throws IOException {
+        return compile(processorOptions, new TeselaProcessor(), sources);
+    }
+
+    static Compilation compile(List<String> processorOptions, Processor processor, JavaFileObject... sources)
+            throws IOException {
+        File sourceOutput = Files.createTempDirectory("tesela-gen").toFile();
+        File classOutput = Files.createTempDirectory("tesela-classes").toFile();
+        List<String> options = new ArrayList<>(processorOptions);
+        options.addAll(Arrays.asList(
+                "-classpath", System.getProperty("java.class.path"),
+                "-s", sourceOutput.getPath(),
+                "-d", classOutput.getPath(),
+                "-Xlint:unchecked"));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.US, UTF_8);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null,
+                    Arrays.asList(sources));
+            task.setProcessors(Arrays.asList(processor));
+            boolean success = task.call();
+            return new Compilation(success, diagnostics.getDiagnostics(), sourceOutput, classOutput);
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    boolean succeeded() {
+        return success;
+    }
+
+    List<String> getMessages(Diagnostic.Kind kind) {
+        List<String> messages = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            if (diagnostic.getKind() == kind) {
+                messages.add(diagnostic.getMessage(Locale.US));
+            }
+        }
+        return messages;
+    }
+
+    List<String> getErrors() {
+        return getMessages(Diagnostic.Kind.ERROR);
+    }
+
+    /** All diagnostics, for assertion messages. */
+    String describe() {
+        StringBuilder description = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+            description.append(diagnostic.getKind()).append(": ").append(diagnostic.getMessage(Locale.US)).append('\n');
+        }
+        return description.toString();
+    }
+
+    String getGeneratedSource(String qualifiedName) throws IOException {
+        File file = new File(sourceOutput, qualifiedName.replace('.', '/') + ".java");
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+
+    String getGeneratedResource(String relativePath) throws IOException {
+        File file = new File(classOutput, relativePath);
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+
+    boolean hasGeneratedFile(String relativePath) {
+        return new File(sourceOutput, relativePath).exists() || new File(classOutput, relativePath).exists();
+    }
+
+    Class<?> loadClass(String qualifiedName) throws Exception {
+        if (classLoader == null) {
+            classLoader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, Compilation.class.getClassLoader());
+        }
+        return classLoader.loadClass(qualifiedName);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class ConflatedUICallTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.ProgressPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class ProgressPresenter {",
+            "    protected void download(int steps) {",
+            "        for (int i = 0; i < steps; i++) {",
+            "            showProgress(i);",
+            "            showStep(i);",
+            "        }",
+            "    }",
+            "    @UI(conflate = true) protected void showProgress(int progress) { Events.add(\"progress:\" + progress); }",
+            "    @UI protected void showStep(int step) { Events.add(\"step:\" + step); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public ConflatedUICallTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.ProgressPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void runsOnlyTheLatestCallMadeWhileTheMainThreadWasBusy() throws Exception {
+        CountDownLatch release = harness.blockMain();
+        PresenterHarness.call(presenter, "download", 1000);
+        release.countDown();
+        harness.drainMain();
+
+        int progressCount = 0;
+        int stepCount = 0;
+        String lastProgress = null;
+        for (String event : Events.get()) {
+            if (event.startsWith("progress:")) {
+                progressCount++;
+                lastProgress = event;
+            } else {
+                stepCount++;
+            }
+        }
+        assertEquals(1, progressCount);
+        assertEquals("progress:999", lastProgress);
+        assertEquals(1000, stepCount);
+    }
+
+    @Test
+    public void runsAgainOnceThePendingCallHasBeenDelivered() throws Exception {
+        PresenterHarness.call(presenter, "showProgress", 1);
+        harness.drainMain();
+        PresenterHarness.call(presenter, "showProgress", 2);
+        harness.drainMain();
+
+        assertEquals(Arrays.asList("progress:1", "progress:2"), Events.get());
+    }
+
+    @Test
+    public void runsInlineOnTheMainThread() throws Exception {
+        harness.callOnMain(presenter, "showProgress", 1);
+        harness.callOnMain(presenter, "showProgress", 2);
+
+        assertEquals(Arrays.asList("progress:1", "progress:2"), Events.get());
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class DedupeTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.RefreshPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "import java.util.concurrent.CountDownLatch;",
+            "import java.util.concurrent.TimeUnit;",
+            "public class RefreshPresenter {",
+            "    public static volatile CountDownLatch release = new CountDownLatch(0);",
+            "    @Background(dedupe = true) protected void refresh(String id) {",
+            "        Events.add(\"started:\" + id);",
+            "        try { release.await(5, TimeUnit.SECONDS); } catch (InterruptedException ignored) { }",
+            "        Events.add(\"done:\" + id);",
+            "    }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Compilation compilation;
+    private Object presenter;
+
+    public DedupeTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.RefreshPresenter");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        getRelease().countDown();
+        harness.close();
+    }
+
+    @Test
+    public void joinsCallsWithEqualArgumentsWhileOneIsInFlight() throws Exception {
+        CountDownLatch release = blockRefreshes();
+        harness.callOnMain(presenter, "refresh", "a");
+        Events.await(1);
+        harness.callOnMain(presenter, "refresh", "a");
+        harness.callOnMain(presenter, "refresh", "b");
+        release.countDown();
+
+        Events.await(4);
+        assertEquals(Arrays.asList("done:a", "done:b"), filter(Events.get(), "done:"));
+        assertEquals(Arrays.asList("started:a", "started:b"), filter(Events.get(), "started:"));
+    }
+
+    @Test
+    public void runsAgainOnceTheCallInFlightIsDone() throws Exception {
+        harness.callOnMain(presenter, "refresh", "a");
+        Events.await(2);
+
+        // The call only leaves once its task finishes, a moment after logging it is done
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Events.get().size() == 2 && System.currentTimeMillis() < deadline) {
+            harness.callOnMain(presenter, "refresh", "a");
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList("started:a", "done:a", "started:a", "done:a"), Events.await(4));
+    }
+
+    private static List<String> filter(List<String> events, String prefix) {
+        List<String> filtered = new ArrayList<>();
+        for (String event : events) {
+            if (event.startsWith(prefix)) {
+                filtered.add(event);
+            }
+        }
+        return filtered;
+    }
+
+    /** Makes refreshes wait until the returned latch is counted down. */
+    private CountDownLatch blockRefreshes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        compilation.loadClass("test.RefreshPresenter").getField("release").set(null, release);
+        return release;
+    }
+
+    private CountDownLatch getRelease() throws Exception {
+        return (CountDownLatch) compilation.loadClass("test.RefreshPresenter").getField("release").get(null);
+    }
+
+}
@@ -0,0 +1,35 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Parameters to run a test once per dispatch mode. */
+final class DispatchModes {
+
+    private DispatchModes() {
+    }
+
+    static List<Object[]> all() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (DispatchMode mode : DispatchMode.values()) {
+            parameters.add(new Object[]{mode});
+        }
+        return parameters;
+    }
+
+}
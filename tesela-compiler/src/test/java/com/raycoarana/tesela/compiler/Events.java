@@ -0,0 +1,69 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Log that presenters compiled by the tests write to, so the tests can see what ran and where. */
+public final class Events {
+
+    private static final List<String> events = new ArrayList<>();
+
+    private Events() {
+    }
+
+    public static void add(String event) {
+        synchronized (events) {
+            events.add(event);
+            events.notifyAll();
+        }
+    }
+
+    /** Name of the current thread, "main" for the main looper. */
+    public static String thread() {
+        return Thread.currentThread().getName();
+    }
+
+    static List<String> get() {
+        synchronized (events) {
+            return new ArrayList<>(events);
+        }
+    }
+
+    static void clear() {
+        synchronized (events) {
+            events.clear();
+        }
+    }
+
+    /** Waits for at least the given number of events and returns all of them. */
+    static List<String> await(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        synchronized (events) {
+            while (events.size() < count) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new AssertionError("Expected " + count + " events, got " + events);
+                }
+                TimeUnit.NANOSECONDS.timedWait(events, remaining);
+            }
+            return new ArrayList<>(events);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HopReportTest {
+
+    private static final JavaFileObject REPOSITORY = Compilation.source("test.RepositoryPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "public class RepositoryPresenter {",
+            "    @Background protected void fetch() {",
+            "    }",
+            "}");
+
+    private static final JavaFileObject SCREEN = Compilation.source("test.ScreenPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "public class ScreenPresenter {",
+            "    private RepositoryPresenter repository = new RepositoryPresenter();",
+            "    @UI protected void onClick() {",
+            "        load();",
+            "        repository.fetch();",
+            "    }",
+            "    @Background protected void load() {",
+            "    }",
+            "}");
+
+    @Test
+    public void onlyFollowsCallsBetweenMethodsOfTheSamePresenter() throws Exception {
+        Compilation compilation = Compilation.compile(Arrays.asList("-A" + HopReport.OPTION + "=true"),
+                REPOSITORY, SCREEN);
+        assertTrue(compilation.describe(), compilation.succeeded());
+
+        String report = compilation.getGeneratedResource("test/TeselaScreenPresenter-hops.txt");
+        assertTrue(report, report.contains("-> load (@Background)"));
+        assertFalse(report, report.contains("fetch"));
+        assertTrue(report, report.contains("1 calls between annotated methods"));
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class LatestModeTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.SearchPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.CancellationToken;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class SearchPresenter {",
+            "    public static volatile boolean release;",
+            "    @Background(mode = Background.Mode.LATEST) protected void search(String query, CancellationToken token) {",
+            "        Events.add(\"started:\" + query);",
+            "        while (!release && !token.isCancelled()) { Thread.yield(); }",
+            "        if (token.isCancelled()) { Events.add(\"cancelled:\" + query); }",
+            "        showResults(query);",
+            "    }",
+            "    @UI protected void showResults(String query) { Events.add(\"results:\" + query); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Compilation compilation;
+    private Object presenter;
+
+    public LatestModeTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.SearchPresenter");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        setRelease(true);
+        harness.close();
+    }
+
+    @Test
+    public void cancelsTheCallInFlightAndDropsItsUICalls() throws Exception {
+        harness.callOnMain(presenter, "search", "a", null);
+        Events.await(1);
+        harness.callOnMain(presenter, "search", "ab", null);
+        setRelease(true);
+
+        awaitEvent("results:ab");
+        harness.drainMain();
+        List<String> events = Events.get();
+        assertTrue(events.toString(), events.contains("cancelled:a"));
+        assertFalse(events.toString(), events.contains("results:a"));
+        assertFalse(events.toString(), events.contains("cancelled:ab"));
+    }
+
+    @Test
+    public void runsEveryCallMadeOnceTheLastOneIsDone() throws Exception {
+        setRelease(true);
+        harness.callOnMain(presenter, "search", "a", null);
+        awaitEvent("results:a");
+        harness.callOnMain(presenter, "search", "b", null);
+        awaitEvent("results:b");
+
+        assertEquals(4, Events.get().size());
+    }
+
+    private void awaitEvent(String event) throws InterruptedException {
+        for (int count = 1; !Events.await(count).contains(event); count++) {
+        }
+    }
+
+    private void setRelease(boolean release) throws Exception {
+        compilation.loadClass("test.SearchPresenter").getField("release").setBoolean(null, release);
+    }
+
+}
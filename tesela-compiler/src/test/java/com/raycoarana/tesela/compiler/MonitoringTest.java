@@ -0,0 +1,99 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.monitor.HistogramMonitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Map;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class MonitoringTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.ScreenPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class ScreenPresenter {",
+            "    @Background(tag = \"data\") protected void load(String id) { show(id); }",
+            "    @UI protected void show(String id) { Events.add(\"show:\" + id); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private final HistogramMonitor monitor = new HistogramMonitor();
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public MonitoringTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        Tesela.init(harness.getExecutor(), monitor);
+        presenter = PresenterHarness.create(compilation, "test.ScreenPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void reportsEveryBackgroundAndUICall() throws Exception {
+        harness.callOnMain(presenter, "load", "a");
+        harness.callOnMain(presenter, "load", "b");
+        Events.await(2);
+        harness.drainMain();
+
+        // Background calls are reported once their task ends, right after they post their UI call
+        long deadline = System.currentTimeMillis() + 5000;
+        while (getCount("ScreenPresenter.load [data]") < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Map<String, HistogramMonitor.Snapshot> snapshot = monitor.snapshot();
+        assertEquals(snapshot.toString(), 2, snapshot.size());
+        assertEquals(2, snapshot.get("ScreenPresenter.load [data]").getExecution().getCount());
+        assertEquals(2, snapshot.get("ScreenPresenter.show").getExecution().getCount());
+    }
+
+    private long getCount(String name) {
+        HistogramMonitor.Snapshot snapshot = monitor.snapshot().get(name);
+        return snapshot != null ? snapshot.getExecution().getCount() : 0;
+    }
+
+}
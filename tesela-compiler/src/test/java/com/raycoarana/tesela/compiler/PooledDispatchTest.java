@@ -0,0 +1,154 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.CancellationToken;
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaExecutor;
+
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class PooledDispatchTest {
+
+    private static final int CALLS = 100000;
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.PooledPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.CancellationToken;",
+            "import com.raycoarana.tesela.Tesela;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "import java.util.ArrayList;",
+            "import java.util.List;",
+            "public class PooledPresenter {",
+            "    public static final List<CancellationToken> TOKENS = new ArrayList<>();",
+            "    public static void callRepeatedly(PooledPresenter presenter, int times) {",
+            "        for (int i = 0; i < times; i++) {",
+            "            presenter.load(\"id\", 1);",
+            "        }",
+            "    }",
+            "    @Background protected void load(String id, int page) { show(id, page); }",
+            "    @UI protected void show(String id, int page) { }",
+            "    @Background(tag = \"watch\") protected void watch(boolean cancel, CancellationToken token) {",
+            "        TOKENS.add(token);",
+            "        if (cancel) { Tesela.cancelTag(\"watch\"); }",
+            "    }",
+            "}");
+
+    private static Compilation compilation;
+
+    @BeforeClass
+    public static void compile() throws Exception {
+        compilation = Compilation.compile(DispatchMode.POOLED, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+    }
+
+    @Test
+    public void neverReusesATaskWhoseTokenEscaped() throws Exception {
+        Tesela.init(new InlineExecutor());
+        Object presenter = PresenterHarness.create(compilation, "test.PooledPresenter");
+        @SuppressWarnings("unchecked")
+        List<CancellationToken> tokens = (List<CancellationToken>) compilation.loadClass("test.PooledPresenter")
+                .getField("TOKENS").get(null);
+
+        PresenterHarness.call(presenter, "watch", true, null);
+        PresenterHarness.call(presenter, "watch", false, null);
+
+        assertEquals(2, tokens.size());
+        assertNotSame(tokens.get(0), tokens.get(1));
+        assertTrue(tokens.get(0).isCancelled());
+        assertFalse(tokens.get(1).isCancelled());
+    }
+
+    @Test
+    public void doesNotAllocateOnceTheTaskPoolsAreWarm() throws Exception {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        Tesela.init(new InlineExecutor());
+        Object presenter = PresenterHarness.create(compilation, "test.PooledPresenter");
+        Class<?> presenterType = compilation.loadClass("test.PooledPresenter");
+        PresenterHarness.call(presenterType, "callRepeatedly", presenter, CALLS);
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        PresenterHarness.call(presenterType, "callRepeatedly", presenter, CALLS);
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertTrue("Allocated " + allocated + " bytes for " + CALLS + " calls", allocated < CALLS / 10);
+    }
+
+    /**
+     * Runs background work inline on the calling thread, which counts as a background thread while
+     * it does, and UI work inline as well.
+     */
+    private static final class InlineExecutor implements TeselaExecutor {
+
+        private final ThreadLocal<Boolean> inBackground = new ThreadLocal<Boolean>() {
+            @Override
+            protected Boolean initialValue() {
+                return Boolean.FALSE;
+            }
+        };
+
+        @Override
+        public boolean isMainCurrentThread() {
+            return !inBackground.get();
+        }
+
+        @Override
+        public void executeInUIThread(Runnable runnable) {
+            run(runnable, Boolean.FALSE);
+        }
+
+        @Override
+        public void executeInBackground(Runnable runnable) {
+            run(runnable, Boolean.TRUE);
+        }
+
+        @Override
+        public void executeInBackground(Runnable runnable, String tag) {
+            run(runnable, Boolean.TRUE);
+        }
+
+        private void run(Runnable runnable, Boolean background) {
+            Boolean previous = inBackground.get();
+            inBackground.set(background);
+            try {
+                runnable.run();
+            } finally {
+                inBackground.set(previous);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaExecutor;
+import com.raycoarana.tesela.executor.JvmMainLooper;
+import com.raycoarana.tesela.executor.LooperTeselaExecutor;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs presenters generated by a {@link Compilation} on a {@link JvmMainLooper}, calling their
+ * methods by reflection since their types only exist at runtime.
+ */
+final class PresenterHarness {
+
+    private final JvmMainLooper looper = new JvmMainLooper();
+    private final TeselaExecutor executor;
+
+    PresenterHarness() {
+        executor = new LooperTeselaExecutor(looper);
+        Tesela.init(executor);
+    }
+
+    JvmMainLooper getLooper() {
+        return looper;
+    }
+
+    TeselaExecutor getExecutor() {
+        return executor;
+    }
+
+    /** Creates the generated presenter of the given presenter class. */
+    static Object create(Compilation compilation, String presenterName) throws Exception {
+        int lastDot = presenterName.lastIndexOf('.');
+        String generatedName = presenterName.substring(0, lastDot + 1) + "Tesela" + presenterName.substring(lastDot + 1);
+        return compilation.loadClass(generatedName).getDeclaredConstructor().newInstance();
+    }
+
+    /** Calls the method on the main thread and waits for it to return. */
+    Object callOnMain(final Object target, final String methodName, final Object... arguments) throws Exception {
+        return runOnMain(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return PresenterHarness.call(target, methodName, arguments);
+            }
+        });
+    }
+
+    <T> T runOnMain(final Callable<T> callable) throws Exception {
+        final AtomicReference<T> result = new AtomicReference<>();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        looper.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    result.set(callable.call());
+                } catch (Exception e) {
+                    failure.set(e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        if (!done.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("Main thread didn't run the call");
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return result.get();
+    }
+
+    /** Keeps the main thread busy until the returned latch is counted down. */
+    CountDownLatch blockMain() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        looper.post(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        blocked.await(5, TimeUnit.SECONDS);
+        return release;
+    }
+
+    /**
+     * Waits until everything posted to the main thread so far has run, including UI work still
+     * queued in the executor, which only hands a slice of its queue to the looper at a time.
+     */
+    void drainMain() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.executeInUIThread(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        if (!done.await(5, TimeUnit.SECONDS)) {
+            throw new AssertionError("Main thread didn't run the queued work");
+        }
+        runOnMain(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+    }
+
+    void close() {
+        looper.quit();
+    }
+
+    /** Calls a method of the target, or a static method if the target is a class. */
+    static Object call(Object target, String methodName, Object... arguments) throws Exception {
+        boolean isStatic = target instanceof Class;
+        Method method = findMethod(isStatic ? (Class<?>) target : target.getClass(), methodName, arguments.length);
+        try {
+            return method.invoke(isStatic ? null : target, arguments);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String methodName, int parameterCount) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals(methodName) && method.getParameterTypes().length == parameterCount
+                        && !method.isBridge()) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No method " + methodName + " with " + parameterCount + " parameters in " + type);
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class QueueLimitTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.SyncPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.Overflow;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "import java.util.concurrent.CountDownLatch;",
+            "import java.util.concurrent.TimeUnit;",
+            "public class SyncPresenter {",
+            "    static final CountDownLatch release = new CountDownLatch(1);",
+            "    static void release() {",
+            "        release.countDown();",
+            "    }",
+            "    @Background(tag = \"sync\", capacity = 1, overflow = Overflow.BLOCK, overflowTimeoutMs = 30000)",
+            "    protected void sync(String id) {",
+            "        Events.add(id + \"@\" + Events.thread());",
+            "        if (id.equals(\"hold\")) {",
+            "            try {",
+            "                release.await(5, TimeUnit.SECONDS);",
+            "            } catch (InterruptedException ignored) {",
+            "            }",
+            "        }",
+            "    }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Compilation compilation;
+    private Object presenter;
+
+    public QueueLimitTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.SyncPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void dropsCallsFromTheUIThreadInsteadOfBlockingIt() throws Exception {
+        harness.callOnMain(presenter, "sync", "hold");
+        String worker = Events.await(1).get(0).split("@")[1];
+        harness.callOnMain(presenter, "sync", "queued");
+        harness.callOnMain(presenter, "sync", "dropped");
+
+        PresenterHarness.call(compilation.loadClass("test.SyncPresenter"), "release");
+        Events.await(2);
+        harness.callOnMain(presenter, "sync", "after");
+
+        assertEquals(Arrays.asList("hold@" + worker, "queued@" + worker, "after@" + worker), Events.await(3));
+    }
+
+    @Test
+    public void rejectsRunningOrWaitingOnTheTimerThread() throws Exception {
+        Compilation compilation = Compilation.compile(dispatchMode, Compilation.source("test.SearchPresenter",
+                "package test;",
+                "import com.raycoarana.tesela.Overflow;",
+                "import com.raycoarana.tesela.annotations.Background;",
+                "import com.raycoarana.tesela.annotations.Debounce;",
+                "public class SearchPresenter {",
+                "    @Debounce(50) @Background(tag = \"search\", capacity = 1, overflow = Overflow.CALLER_RUNS)",
+                "    protected void search(String query) { }",
+                "}"));
+
+        assertFalse(compilation.succeeded());
+        assertEquals(Arrays.asList("Method search in SearchPresenter can't run or wait on overflow, "
+                + "its calls are submitted from the timer thread"), compilation.getErrors());
+    }
+
+}
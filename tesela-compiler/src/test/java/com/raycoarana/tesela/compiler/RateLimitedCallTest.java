@@ -0,0 +1,114 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class RateLimitedCallTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.SearchBoxPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.Debounce;",
+            "import com.raycoarana.tesela.annotations.Throttle;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class SearchBoxPresenter {",
+            "    @Debounce(50) @Background protected void search(String query) { Events.add(\"search:\" + query); }",
+            "    @Throttle(1000) @UI protected void showCount(int count) { Events.add(\"count:\" + count + \"@\" + Events.thread()); }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public RateLimitedCallTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.SearchBoxPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void runsTheLastDebouncedCallOfABurst() throws Exception {
+        harness.callOnMain(presenter, "search", "t");
+        harness.callOnMain(presenter, "search", "te");
+        harness.callOnMain(presenter, "search", "tes");
+
+        assertEquals(Arrays.asList("search:tes"), Events.await(1));
+        Thread.sleep(150);
+        assertEquals(Arrays.asList("search:tes"), Events.get());
+    }
+
+    @Test
+    public void runsTheFirstThrottledCallOnTheUIThreadRightAway() throws Exception {
+        String mainThread = (String) harness.runOnMain(new Callable<Object>() {
+            @Override
+            public Object call() {
+                return Events.thread();
+            }
+        });
+        PresenterHarness.call(presenter, "showCount", 1);
+        PresenterHarness.call(presenter, "showCount", 2);
+        harness.drainMain();
+
+        assertEquals(Arrays.asList("count:1@" + mainThread), Events.get());
+    }
+
+    @Test
+    public void rejectsRateLimitedMethodsThatAreNotBackgroundOrUI() throws Exception {
+        Compilation compilation = Compilation.compile(dispatchMode, Compilation.source("test.PlainPresenter",
+                "package test;",
+                "import com.raycoarana.tesela.annotations.Debounce;",
+                "public class PlainPresenter {",
+                "    @Debounce(50) protected void search(String query) { }",
+                "}"));
+
+        assertFalse(compilation.succeeded());
+        assertEquals(Arrays.asList("@Debounce method search must also be @Background or @UI"), compilation.getErrors());
+    }
+
+}
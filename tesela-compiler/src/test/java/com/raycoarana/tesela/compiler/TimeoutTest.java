@@ -0,0 +1,132 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.Tesela;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(Parameterized.class)
+public class TimeoutTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.LoadPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class LoadPresenter {",
+            "    @Background(timeoutMs = 50, onTimeout = \"showTimeout\")",
+            "    protected void load(String id, long sleepMs) {",
+            "        try {",
+            "            Thread.sleep(sleepMs);",
+            "            showLoaded(id);",
+            "        } catch (InterruptedException e) {",
+            "            Events.add(\"interrupted:\" + id);",
+            "            showLoaded(id);",
+            "        }",
+            "    }",
+            "    @UI protected void showLoaded(String id) {",
+            "        Events.add(\"loaded:\" + id + \"@\" + Events.thread());",
+            "    }",
+            "    @UI protected void showTimeout(String id, long sleepMs) {",
+            "        Events.add(\"timeout:\" + id + \"@\" + Events.thread());",
+            "    }",
+            "}");
+
+    private final DispatchMode dispatchMode;
+    private PresenterHarness harness;
+    private Object presenter;
+
+    public TimeoutTest(DispatchMode dispatchMode) {
+        this.dispatchMode = dispatchMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Iterable<Object[]> dispatchModes() {
+        return DispatchModes.all();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        Compilation compilation = Compilation.compile(dispatchMode, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.LoadPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        harness.close();
+    }
+
+    @Test
+    public void interruptsTheCallAndFallsBackOnTheMainThread() throws Exception {
+        long timedOutCount = Tesela.getTimedOutCount();
+        harness.callOnMain(presenter, "load", "slow", 5000L);
+
+        Events.await(2);
+        harness.drainMain();
+        assertEquals(Arrays.asList("interrupted:slow", "timeout:slow@main"), sorted(Events.get()));
+        assertEquals(timedOutCount + 1, Tesela.getTimedOutCount());
+    }
+
+    @Test
+    public void leavesCallsThatFinishInTimeAlone() throws Exception {
+        harness.callOnMain(presenter, "load", "fast", 0L);
+
+        Events.await(1);
+        Thread.sleep(100);
+        harness.drainMain();
+        assertEquals(Arrays.asList("loaded:fast@main"), Events.get());
+    }
+
+    @Test
+    public void rejectsAFallbackThatIsNotAMatchingUIMethod() throws Exception {
+        Compilation compilation = Compilation.compile(dispatchMode, Compilation.source("test.PlainPresenter",
+                "package test;",
+                "import com.raycoarana.tesela.annotations.Background;",
+                "import com.raycoarana.tesela.annotations.UI;",
+                "public class PlainPresenter {",
+                "    @Background(timeoutMs = 50, onTimeout = \"showTimeout\") protected void load(String id) { }",
+                "    @UI protected void showTimeout(int attempt) { }",
+                "}"));
+
+        assertFalse(compilation.succeeded());
+        assertEquals(Arrays.asList("Method load in PlainPresenter falls back to showTimeout on timeout, "
+                + "which is not a @UI method with no parameters or the same ones"), compilation.getErrors());
+    }
+
+    private static List<String> sorted(List<String> events) {
+        Collections.sort(events);
+        return events;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import com.raycoarana.tesela.Tesela;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ViewCollectionTest {
+
+    private static final JavaFileObject VIEW = Compilation.source("test.ScreenView",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.View;",
+            "@View",
+            "public interface ScreenView {",
+            "    void show(String text);",
+            "}");
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.ScreenPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.CancellationToken;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.ViewReference;",
+            "import com.raycoarana.tesela.compiler.Events;",
+            "public class ScreenPresenter {",
+            "    @ViewReference protected WeakScreenView mView;",
+            "    public void attach(ScreenView view) { mView = WeakScreenView.of(view); }",
+            "    @Background protected void load(CancellationToken token) {",
+            "        Events.add(\"started\");",
+            "        while (!token.isCancelled()) { Thread.yield(); }",
+            "        Events.add(\"cancelled\");",
+            "    }",
+            "}");
+
+    private PresenterHarness harness;
+    private Compilation compilation;
+    private Object presenter;
+
+    @Before
+    public void setUp() throws Exception {
+        Events.clear();
+        compilation = Compilation.compile(VIEW, PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+        harness = new PresenterHarness();
+        presenter = PresenterHarness.create(compilation, "test.ScreenPresenter");
+    }
+
+    @After
+    public void tearDown() {
+        Tesela.cancelPresenter(presenter);
+        harness.close();
+    }
+
+    @Test
+    public void cancelsWorkOnceTheViewIsCollected() throws Exception {
+        attachNewView();
+        harness.callOnMain(presenter, "load", (Object) null);
+        Events.await(1);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (Events.get().size() < 2 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertEquals(Arrays.asList("started", "cancelled"), Events.get());
+    }
+
+    @Test
+    public void keepsWorkWhileTheViewIsAlive() throws Exception {
+        Object view = attachNewView();
+        harness.callOnMain(presenter, "load", (Object) null);
+        Events.await(1);
+
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        List<String> events = Events.get();
+        assertEquals(Arrays.asList("started"), events);
+        assertTrue(view != null);
+
+        Tesela.cancelPresenter(presenter);
+        Events.await(2);
+    }
+
+    private Object attachNewView() throws Exception {
+        Class<?> viewType = compilation.loadClass("test.ScreenView");
+        Object view = Proxy.newProxyInstance(viewType.getClassLoader(), new Class<?>[]{viewType}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] arguments) {
+                return null;
+            }
+        });
+        PresenterHarness.call(presenter, "attach", view);
+        return view;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.compiler;
+
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.Completion;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WrappedEnvironmentTest {
+
+    private static final JavaFileObject PRESENTER = Compilation.source("test.ScreenPresenter",
+            "package test;",
+            "import com.raycoarana.tesela.annotations.Background;",
+            "import com.raycoarana.tesela.annotations.UI;",
+            "public class ScreenPresenter {",
+            "    @UI protected void onClick() {",
+            "        load();",
+            "    }",
+            "    @Background protected void load() {",
+            "    }",
+            "}");
+
+    private static final List<String> OPTIONS = Arrays.asList("-A" + HopReport.OPTION + "=true");
+
+    @Test
+    public void unwrapsEnvironmentsThatHoldTheJavacOne() throws Exception {
+        Compilation compilation = Compilation.compile(OPTIONS, new WrappingProcessor(Wrapping.DELEGATE), PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+
+        assertEquals(compilation.describe(), 0, getFusionWarnings(compilation).size());
+        String report = compilation.getGeneratedResource("test/TeselaScreenPresenter-hops.txt");
+        assertTrue(report, report.contains("-> load (@Background)"));
+    }
+
+    @Test
+    public void keepsLookingWhenAnotherEnvironmentIsHeldFirst() throws Exception {
+        Compilation compilation = Compilation.compile(OPTIONS, new WrappingProcessor(Wrapping.DECOY_FIRST), PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+
+        assertEquals(compilation.describe(), 0, getFusionWarnings(compilation).size());
+        String report = compilation.getGeneratedResource("test/TeselaScreenPresenter-hops.txt");
+        assertTrue(report, report.contains("-> load (@Background)"));
+    }
+
+    @Test
+    public void warnsWhenMethodBodiesCantBeRead() throws Exception {
+        Compilation compilation = Compilation.compile(OPTIONS, new WrappingProcessor(Wrapping.HIDDEN), PRESENTER);
+        assertTrue(compilation.describe(), compilation.succeeded());
+
+        assertEquals(compilation.describe(), 1, getFusionWarnings(compilation).size());
+        String report = compilation.getGeneratedResource("test/TeselaScreenPresenter-hops.txt");
+        assertFalse(report, report.contains("-> load"));
+    }
+
+    /** Tesela's own warnings, leaving out those javac adds on newer JDKs about the source version. */
+    private static List<String> getFusionWarnings(Compilation compilation) {
+        List<String> warnings = new ArrayList<>();
+        for (String warning : compilation.getMessages(Diagnostic.Kind.WARNING)) {
+            if (warning.contains("won't be fused")) {
+                warnings.add(warning);
+            }
+        }
+        return warnings;
+    }
+
+    private enum Wrapping {
+        /** In a class holding the javac environment in a field. */
+        DELEGATE,
+        /** Like DELEGATE, with a field holding an environment that hides javac's checked first. */
+        DECOY_FIRST,
+        /** In a proxy that hides it. */
+        HIDDEN
+    }
+
+    /** Runs {@link TeselaProcessor} with the environment wrapped the way build tools do. */
+    private static class WrappingProcessor implements Processor {
+
+        private final TeselaProcessor processor = new TeselaProcessor();
+        private final Wrapping wrapping;
+
+        WrappingProcessor(Wrapping wrapping) {
+            this.wrapping = wrapping;
+        }
+
+        @Override
+        public Set<String> getSupportedOptions() {
+            return processor.getSupportedOptions();
+        }
+
+        @Override
+        public Set<String> getSupportedAnnotationTypes() {
+            return processor.getSupportedAnnotationTypes();
+        }
+
+        @Override
+        public SourceVersion getSupportedSourceVersion() {
+            return processor.getSupportedSourceVersion();
+        }
+
+        @Override
+        public void init(ProcessingEnvironment processingEnv) {
+            switch (wrapping) {
+                case DELEGATE:
+                    processor.init(new DelegatingProcessingEnvironment(processingEnv));
+                    break;
+                case DECOY_FIRST:
+                    processor.init(new DecoyProcessingEnvironment(processingEnv, hide(processingEnv)));
+                    break;
+                default:
+                    processor.init(hide(processingEnv));
+                    break;
+            }
+        }
+
+        private static ProcessingEnvironment hide(final ProcessingEnvironment processingEnv) {
+            return (ProcessingEnvironment) Proxy.newProxyInstance(WrappingProcessor.class.getClassLoader(),
+                    new Class<?>[]{ProcessingEnvironment.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                            return method.invoke(processingEnv, args);
+                        }
+                    });
+        }
+
+        @Override
+        public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+            return processor.process(annotations, roundEnv);
+        }
+
+        @Override
+        public Iterable<? extends Completion> getCompletions(Element element, AnnotationMirror annotation,
+                                                             ExecutableElement member, String userText) {
+            return processor.getCompletions(element, annotation, member, userText);
+        }
+
+    }
+
+    private static class DelegatingProcessingEnvironment implements ProcessingEnvironment {
+
+        private final ProcessingEnvironment delegate;
+
+        DelegatingProcessingEnvironment(ProcessingEnvironment delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Map<String, String> getOptions() {
+            return delegate.getOptions();
+        }
+
+        @Override
+        public Messager getMessager() {
+            return delegate.getMessager();
+        }
+
+        @Override
+        public Filer getFiler() {
+            return delegate.getFiler();
+        }
+
+        @Override
+        public Elements getElementUtils() {
+            return delegate.getElementUtils();
+        }
+
+        @Override
+        public Types getTypeUtils() {
+            return delegate.getTypeUtils();
+        }
+
+        @Override
+        public SourceVersion getSourceVersion() {
+            return delegate.getSourceVersion();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return delegate.getLocale();
+        }
+
+    }
+
+    /** Its own fields are read before those of its superclass, so the decoy comes first. */
+    private static class DecoyProcessingEnvironment extends DelegatingProcessingEnvironment {
+
+        private final ProcessingEnvironment decoy;
+
+        DecoyProcessingEnvironment(ProcessingEnvironment delegate, ProcessingEnvironment decoy) {
+            super(delegate);
+            this.decoy = decoy;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return decoy.getLocale();
+        }
+
+    }
+
+}
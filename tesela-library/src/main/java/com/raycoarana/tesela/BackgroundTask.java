@@ -0,0 +1,308 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import com.raycoarana.tesela.annotations.Background;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Work scheduled by a generated @Background wrapper. Tasks are tracked from submission until they
+ * finish, so they can be cancelled by tag or by presenter, and act as the cancellation token of
+ * the invocation they run.
+ * <p>
+ * Recycled tasks, like the ones of pooled dispatch, run other invocations once they finish. They
+ * are only recycled while their token hasn't escaped: taking it with {@link #currentToken()} or
+ * {@link #getToken()} keeps the task from ever being reused, and a token held with
+ * {@link #holdCurrentToken()} delays it until it is given back with {@link #releaseToken}.
+ * <p>
+ * A task with a timeout is watched while it runs. Once the deadline passes it is cancelled, its
+ * thread is interrupted and {@link #onTimeout()} is called from the timer thread.
+ */
+public abstract class BackgroundTask implements Runnable, CancellationToken {
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_RUNNING = 1;
+    private static final int STATE_CANCELLED = 2;
+    private static final int STATE_DONE = 3;
+
+    private static final ThreadLocal<BackgroundTask> sCurrentTask = new ThreadLocal<>();
+
+    private final Object mOwner;
+    private final String mName;
+    private final String mTag;
+    private final Priority mPriority;
+    private final QueueLimit mQueueLimit;
+    private final AtomicInteger mState = new AtomicInteger(STATE_DONE);
+    private volatile boolean mCancelled;
+    private Thread mRunner;
+    private int mRunGeneration;
+    private ScheduledFuture<?> mWatchdog;
+    private Tesela mTimedOutIn;
+    private long mEnqueuedAt;
+    private final AtomicInteger mTokenHolds = new AtomicInteger();
+    private volatile boolean mTokenEscaped;
+
+    BackgroundTask mPrevious;
+    BackgroundTask mNext;
+    boolean mRegistered;
+
+    public BackgroundTask(Object owner, String name, String tag) {
+        this(owner, name, tag, Priority.NORMAL);
+    }
+
+    public BackgroundTask(Object owner, String name, String tag, Priority priority) {
+        this(owner, name, tag, priority, null);
+    }
+
+    public BackgroundTask(Object owner, String name, String tag, Priority priority, QueueLimit queueLimit) {
+        mOwner = owner;
+        mName = name;
+        mTag = tag;
+        mPriority = priority;
+        mQueueLimit = queueLimit;
+    }
+
+    public static BackgroundTask current() {
+        return sCurrentTask.get();
+    }
+
+    public static CancellationToken currentToken() {
+        BackgroundTask task = sCurrentTask.get();
+        return task != null ? task.getToken() : CancellationToken.NONE;
+    }
+
+    /**
+     * Like {@link #currentToken()}, for a holder that gives the token back with
+     * {@link #releaseToken} once it no longer reads it, so the task can still be recycled.
+     */
+    public static CancellationToken holdCurrentToken() {
+        BackgroundTask task = sCurrentTask.get();
+        if (task == null) {
+            return CancellationToken.NONE;
+        }
+        task.mTokenHolds.incrementAndGet();
+        return task;
+    }
+
+    public static void releaseToken(CancellationToken token) {
+        if (token instanceof BackgroundTask) {
+            ((BackgroundTask) token).releaseTokenHold();
+        }
+    }
+
+    public Object getOwner() {
+        return mOwner;
+    }
+
+    /** Presenter and method this task runs, like "MainPresenter.loadData". */
+    public String getName() {
+        return mName;
+    }
+
+    public String getTag() {
+        return mTag;
+    }
+
+    public Priority getPriority() {
+        return mPriority;
+    }
+
+    /**
+     * Name of the pool registered in {@link Tesela#init} where this task runs, or
+     * {@link Background#NONE} to run it in the executor's own pool.
+     */
+    public String getPool() {
+        return Background.NONE;
+    }
+
+    /** Limit of the queue of this task's tag, or null if it is unbounded. */
+    public QueueLimit getQueueLimit() {
+        return mQueueLimit;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /** Cancellation token of the invocation this task runs, which keeps the task from being recycled. */
+    public CancellationToken getToken() {
+        if (!mTokenEscaped && isRecycled()) {
+            mTokenEscaped = true;
+        }
+        return this;
+    }
+
+    public void submitTo(TeselaExecutor executor) {
+        mCancelled = false;
+        mTokenHolds.set(1);
+        mState.set(STATE_PENDING);
+        mEnqueuedAt = Monitoring.now();
+        Tesela.getTaskRegistry().add(this);
+
+        if (mPriority != Priority.NORMAL && executor instanceof PriorityTeselaExecutor) {
+            ((PriorityTeselaExecutor) executor).executeInBackground(this, mTag, mPriority);
+        } else if (Background.NONE.equals(mTag)) {
+            executor.executeInBackground(this);
+        } else {
+            executor.executeInBackground(this, mTag);
+        }
+    }
+
+    public void cancel() {
+        Tesela.getTaskRegistry().cancel(this);
+    }
+
+    @Override
+    public final void run() {
+        if (!mState.compareAndSet(STATE_PENDING, STATE_RUNNING)) {
+            finish();
+            return;
+        }
+
+        long startedAt = mEnqueuedAt != 0L ? System.nanoTime() : 0L;
+        BackgroundTask previousTask = sCurrentTask.get();
+        sCurrentTask.set(this);
+        long timeoutMs = getTimeoutMs();
+        synchronized (this) {
+            mRunner = Thread.currentThread();
+            mRunGeneration++;
+            if (timeoutMs > 0) {
+                mWatchdog = TeselaTimer.schedule(new Deadline(mRunGeneration), TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+            }
+        }
+        try {
+            doInBackground();
+        } finally {
+            Tesela timedOutIn;
+            synchronized (this) {
+                mRunner = null;
+                if (mWatchdog != null) {
+                    mWatchdog.cancel(false);
+                    mWatchdog = null;
+                }
+                timedOutIn = mTimedOutIn;
+                mTimedOutIn = null;
+            }
+            if (timedOutIn != null) {
+                timedOutIn.timedOutCallReturned(this);
+            }
+            if (mCancelled) {
+                Thread.interrupted();
+            }
+            sCurrentTask.set(previousTask);
+            mState.set(STATE_DONE);
+            Tesela.getTaskRegistry().remove(this);
+            if (startedAt != 0L) {
+                Monitoring.backgroundCallFinished(this, mEnqueuedAt, startedAt);
+            }
+            finish();
+        }
+    }
+
+    protected abstract void doInBackground();
+
+    /**
+     * Whether the result of this task still has somewhere to go. Tasks of presenters with a
+     * @ViewReference report false once the view they would update has been collected.
+     */
+    protected boolean hasLiveConsumer() {
+        return true;
+    }
+
+    /** Whether this task object can run other invocations once it finishes, like pooled tasks do. */
+    protected boolean isRecycled() {
+        return false;
+    }
+
+    /**
+     * Called on recycled tasks once their invocation finished and no one holds its token, when
+     * the task can run another one.
+     */
+    protected void onRecycled() {
+    }
+
+    /** Milliseconds this task may run before it times out, or zero to let it run for as long as it takes. */
+    protected long getTimeoutMs() {
+        return 0L;
+    }
+
+    /**
+     * Called from the timer thread when this task has been running for longer than its timeout,
+     * right after interrupting it.
+     */
+    protected void onTimeout() {
+    }
+
+    /**
+     * Called exactly once per submission, after the task ran or, if it was cancelled while still
+     * pending, when the executor dequeues it.
+     */
+    protected void onFinished() {
+    }
+
+    private void finish() {
+        onFinished();
+        releaseTokenHold();
+    }
+
+    private void releaseTokenHold() {
+        if (mTokenHolds.decrementAndGet() == 0 && !mTokenEscaped && isRecycled()) {
+            onRecycled();
+        }
+    }
+
+    boolean requestCancel() {
+        mCancelled = true;
+        if (mState.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (mRunner != null) {
+                mRunner.interrupt();
+            }
+        }
+        return false;
+    }
+
+    private final class Deadline implements Runnable {
+
+        private final int mDeadlineGeneration;
+
+        private Deadline(int deadlineGeneration) {
+            mDeadlineGeneration = deadlineGeneration;
+        }
+
+        @Override
+        public void run() {
+            synchronized (BackgroundTask.this) {
+                if (mRunner == null || mRunGeneration != mDeadlineGeneration) {
+                    return;
+                }
+                mCancelled = true;
+                mRunner.interrupt();
+                mTimedOutIn = Tesela.backgroundCallTimedOut(BackgroundTask.this);
+            }
+            onTimeout();
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the generated @Batched wrappers. Items are collected until the batch is full, which
+ * dispatches it from the calling thread, or until the batch is maxDelayMs old, which dispatches
+ * it from the shared timer thread.
+ */
+public abstract class Batcher<T> {
+
+    private final int mMaxSize;
+    private final long mMaxDelayNanos;
+
+    private List<T> mBatch;
+    private int mGeneration;
+
+    public Batcher(int maxSize, long maxDelayMs) {
+        mMaxSize = maxSize;
+        mMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+    }
+
+    public void add(T item) {
+        List<T> fullBatch = null;
+        int generation = 0;
+        boolean schedule = false;
+        synchronized (this) {
+            if (mBatch == null) {
+                mBatch = new ArrayList<>();
+                generation = ++mGeneration;
+                schedule = true;
+            }
+            mBatch.add(item);
+            if (mBatch.size() >= mMaxSize) {
+                fullBatch = mBatch;
+                mBatch = null;
+                schedule = false;
+            }
+        }
+
+        if (schedule) {
+            TeselaTimer.schedule(new Expiration(generation), mMaxDelayNanos);
+        }
+        if (fullBatch != null) {
+            dispatch(fullBatch);
+        }
+    }
+
+    /** Dispatches the items collected so far right away, if any. */
+    public void flush() {
+        List<T> batch;
+        synchronized (this) {
+            batch = mBatch;
+            mBatch = null;
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+    }
+
+    protected abstract void dispatch(List<T> batch);
+
+    private final class Expiration implements Runnable {
+
+        private final int mBatchGeneration;
+
+        private Expiration(int batchGeneration) {
+            mBatchGeneration = batchGeneration;
+        }
+
+        @Override
+        public void run() {
+            List<T> batch;
+            synchronized (Batcher.this) {
+                if (mBatch == null || mGeneration != mBatchGeneration) {
+                    return;
+                }
+                batch = mBatch;
+                mBatch = null;
+            }
+            dispatch(batch);
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single pending slot for a conflated @UI method. Producers overwrite the arguments of the pending
+ * call and only the one that fills an empty slot has to schedule the drain on the UI thread.
+ */
+public class ConflatedCall {
+
+    private final AtomicReference<Object[]> mPendingArguments = new AtomicReference<>();
+
+    public boolean offer(Object[] arguments) {
+        return mPendingArguments.getAndSet(arguments) == null;
+    }
+
+    public Object[] take() {
+        return mPendingArguments.getAndSet(null);
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Runs the last offered call once no new call has been offered for the interval. A burst of
+ * calls keeps a single timer scheduled, which moves its own deadline forward when it fires early.
+ */
+public abstract class Debouncer extends RateLimiter {
+
+    private Object[] mArguments;
+    private long mDeadline;
+    private boolean mScheduled;
+
+    private final Runnable mFire = new Runnable() {
+        @Override
+        public void run() {
+            Object[] arguments;
+            synchronized (Debouncer.this) {
+                long remaining = mDeadline - System.nanoTime();
+                if (remaining > 0) {
+                    schedule(this, remaining);
+                    return;
+                }
+                arguments = mArguments;
+                mArguments = null;
+                mScheduled = false;
+            }
+            dispatch(arguments);
+        }
+    };
+
+    public Debouncer(long intervalMs) {
+        super(intervalMs);
+    }
+
+    @Override
+    public void offer(Object[] arguments) {
+        synchronized (this) {
+            mArguments = arguments;
+            mDeadline = System.nanoTime() + mIntervalNanos;
+            if (mScheduled) {
+                return;
+            }
+            mScheduled = true;
+        }
+        schedule(mFire, mIntervalNanos);
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Hooks called by the generated code to time calls. Without a monitor installed, {@link #now()}
+ * returns zero without reading the clock and nothing is reported.
+ */
+public final class Monitoring {
+
+    private Monitoring() {
+    }
+
+    public static long now() {
+        return Tesela.getMonitor() != null ? System.nanoTime() : 0L;
+    }
+
+    public static void uiCallFinished(String name, long postedAt, long startedAt) {
+        TeselaMonitor monitor = Tesela.getMonitor();
+        if (monitor != null && startedAt != 0L) {
+            monitor.onUICallFinished(name, postedAt != 0L ? postedAt : startedAt, startedAt, System.nanoTime());
+        }
+    }
+
+    static void backgroundCallFinished(BackgroundTask task, long enqueuedAt, long startedAt) {
+        TeselaMonitor monitor = Tesela.getMonitor();
+        if (monitor != null) {
+            monitor.onBackgroundCallFinished(task.getName(), task.getTag(), enqueuedAt, startedAt, System.nanoTime());
+        }
+    }
+
+}
@@ -0,0 +1,31 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * What a bounded queue does with new work once it is full. Dropped work is cancelled, so its
+ * futures and callbacks still see it finish.
+ */
+public enum Overflow {
+    /** Drops the work that has waited the longest to make room for the new one. */
+    DROP_OLDEST,
+    /** Drops the new work. */
+    DROP_NEWEST,
+    /** Runs the new work right away on the thread submitting it, outside of the queue order. */
+    CALLER_RUNS,
+    /** Waits up to a timeout for room in the queue, then drops the new work. */
+    BLOCK
+}
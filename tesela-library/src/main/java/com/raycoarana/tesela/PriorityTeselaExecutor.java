@@ -0,0 +1,27 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * {@link TeselaExecutor} that can schedule background work by priority. Work of @Background
+ * methods with a priority other than {@link Priority#NORMAL} is given to it with its priority.
+ * Other executors get that work like any other, so priorities are just ignored.
+ */
+public interface PriorityTeselaExecutor extends TeselaExecutor {
+
+    void executeInBackground(Runnable runnable, String tag, Priority priority);
+
+}
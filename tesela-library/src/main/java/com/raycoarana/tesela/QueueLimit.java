@@ -0,0 +1,57 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Capacity of a queue of pending background work and what to do when it is full, either the
+ * queue of a tag or all the pending work of an executor. The timeout is only used by
+ * {@link Overflow#BLOCK}.
+ */
+public final class QueueLimit {
+
+    private final int mCapacity;
+    private final Overflow mOverflow;
+    private final long mTimeoutMs;
+
+    public QueueLimit(int capacity, Overflow overflow) {
+        this(capacity, overflow, 0L);
+    }
+
+    public QueueLimit(int capacity, Overflow overflow, long timeoutMs) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (overflow == Overflow.BLOCK && timeoutMs <= 0) {
+            throw new IllegalArgumentException("Blocking on overflow needs a positive timeout");
+        }
+        mCapacity = capacity;
+        mOverflow = overflow;
+        mTimeoutMs = timeoutMs;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public Overflow getOverflow() {
+        return mOverflow;
+    }
+
+    public long getTimeoutMs() {
+        return mTimeoutMs;
+    }
+
+}
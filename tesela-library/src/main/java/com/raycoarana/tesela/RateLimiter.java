@@ -0,0 +1,41 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base of the generated @Debounce and @Throttle wrappers. Every limiter shares a single timer
+ * thread, which only hands the calls over to {@link #dispatch(Object[])}, so the work itself
+ * still runs on the background pool or the UI thread.
+ */
+public abstract class RateLimiter {
+
+    protected final long mIntervalNanos;
+
+    protected RateLimiter(long intervalMs) {
+        mIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    }
+
+    public abstract void offer(Object[] arguments);
+
+    protected abstract void dispatch(Object[] arguments);
+
+    protected static void schedule(Runnable runnable, long delayNanos) {
+        TeselaTimer.schedule(runnable, delayNanos);
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of @Cached method results. Least recently used entries are evicted once the
+ * cache is full and entries older than the time to live are dropped when looked up. Null results
+ * are never cached.
+ * <p>
+ * Persistent caches also write every result through to the {@link ResultStore} set in
+ * {@link Tesela#setResultStore(ResultStore)}, under their name followed by the arguments, so
+ * arguments must have a stable toString().
+ */
+public class ResultCache<V> {
+
+    private static final List<ResultCache<?>> sCaches = new ArrayList<>();
+
+    private final long mTtlMs;
+    private final long mTtlNanos;
+    private final String mPersistentName;
+    private final Map<Object, CachedValue<V>> mEntries;
+
+    public ResultCache(long ttlMs, int maxEntries) {
+        this(ttlMs, maxEntries, null);
+    }
+
+    public ResultCache(long ttlMs, int maxEntries, String persistentName) {
+        mTtlMs = ttlMs;
+        mTtlNanos = ttlMs * 1000000L;
+        mPersistentName = persistentName;
+        mEntries = new LruMap<>(maxEntries);
+        synchronized (sCaches) {
+            sCaches.add(this);
+        }
+    }
+
+    public synchronized V get(Object key) {
+        CachedValue<V> cachedValue = mEntries.get(key);
+        if (cachedValue == null) {
+            return null;
+        }
+        if (mTtlNanos > 0 && System.nanoTime() - cachedValue.mCreatedAt > mTtlNanos) {
+            mEntries.remove(key);
+            return null;
+        }
+        return cachedValue.mValue;
+    }
+
+    public void put(Object key, V value) {
+        if (value == null) {
+            return;
+        }
+        synchronized (this) {
+            mEntries.put(key, new CachedValue<>(value, System.nanoTime()));
+        }
+
+        ResultStore store = getStore();
+        if (store != null) {
+            store.put(mPersistentName + key, value);
+        }
+    }
+
+    /**
+     * Looks the key up in the persistent store, expired results included. Fresh results are also
+     * brought back into memory. Returns null when the cache is not persistent or has no result.
+     */
+    @SuppressWarnings("unchecked")
+    public StoredResult load(Object key) {
+        ResultStore store = getStore();
+        if (store == null) {
+            return null;
+        }
+
+        StoredResult storedResult = store.get(mPersistentName + key);
+        if (storedResult != null && isFresh(storedResult)) {
+            long ageNanos = (System.currentTimeMillis() - storedResult.getStoredAt()) * 1000000L;
+            synchronized (this) {
+                mEntries.put(key, new CachedValue<>((V) storedResult.getValue(), System.nanoTime() - ageNanos));
+            }
+        }
+        return storedResult;
+    }
+
+    public boolean isFresh(StoredResult storedResult) {
+        return mTtlMs <= 0 || System.currentTimeMillis() - storedResult.getStoredAt() <= mTtlMs;
+    }
+
+    public synchronized void clear() {
+        mEntries.clear();
+    }
+
+    private ResultStore getStore() {
+        return mPersistentName != null ? Tesela.getResultStore() : null;
+    }
+
+    static void clearAll() {
+        synchronized (sCaches) {
+            for (ResultCache<?> cache : sCaches) {
+                cache.clear();
+            }
+        }
+    }
+
+    private static final class CachedValue<V> {
+
+        private final V mValue;
+        private final long mCreatedAt;
+
+        private CachedValue(V value, long createdAt) {
+            mValue = value;
+            mCreatedAt = createdAt;
+        }
+
+    }
+
+    private static final class LruMap<V> extends LinkedHashMap<Object, CachedValue<V>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mMaxEntries;
+
+        private LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            mMaxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, CachedValue<V>> eldest) {
+            return size() > mMaxEntries;
+        }
+
+    }
+
+}
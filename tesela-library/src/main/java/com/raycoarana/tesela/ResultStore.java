@@ -0,0 +1,28 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Persistent tier behind @Cached(persistent = true) methods. Implementations must be thread safe
+ * and must not throw, a failing store simply behaves as an empty one.
+ */
+public interface ResultStore {
+
+    StoredResult get(String key);
+
+    void put(String key, Object value);
+
+}
@@ -0,0 +1,65 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+/**
+ * In-flight calls of a deduplicated @Background method, keyed by their arguments. A new call with
+ * the same arguments as a queued or running one joins it instead of running again. Calls that
+ * were cancelled or already completed are replaced.
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentMap<Object, T> mInFlight = new ConcurrentHashMap<>();
+
+    public static Object key(Object[] arguments) {
+        return Arrays.asList(arguments);
+    }
+
+    public T join(Object key, T call) {
+        while (true) {
+            T existingCall = mInFlight.putIfAbsent(key, call);
+            if (existingCall == null) {
+                return null;
+            }
+            if (!isStale(existingCall)) {
+                return existingCall;
+            }
+            if (mInFlight.replace(key, existingCall, call)) {
+                return null;
+            }
+        }
+    }
+
+    public void leave(Object key, T call) {
+        mInFlight.remove(key, call);
+    }
+
+    private static boolean isStale(Object call) {
+        if (call instanceof CancellationToken) {
+            return ((CancellationToken) call).isCancelled();
+        }
+        if (call instanceof Future) {
+            return ((Future<?>) call).isDone();
+        }
+        return false;
+    }
+
+}
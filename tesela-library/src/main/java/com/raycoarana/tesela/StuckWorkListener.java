@@ -0,0 +1,30 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Implemented by a {@link TeselaExecutor} that can make up for the threads held by timed out
+ * work. A timed out call is interrupted, but until it returns its thread is still busy.
+ */
+public interface StuckWorkListener {
+
+    /** A call timed out and still holds its thread. Called from the timer thread. */
+    void onWorkStuck(BackgroundTask task);
+
+    /** A call that timed out finally returned. Called from the thread that ran it. */
+    void onStuckWorkReturned(BackgroundTask task);
+
+}
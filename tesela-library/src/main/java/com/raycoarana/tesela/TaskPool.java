@@ -0,0 +1,54 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Small bounded pool of reusable task objects used by presenters generated in pooled dispatch
+ * mode. Acquiring from an empty pool returns null and releasing to a full one drops the task.
+ */
+public class TaskPool<T> {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private final Object[] mTasks;
+    private int mSize;
+
+    public TaskPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TaskPool(int capacity) {
+        mTasks = new Object[capacity];
+    }
+
+    @SuppressWarnings("unchecked")
+    public synchronized T acquire() {
+        if (mSize == 0) {
+            return null;
+        }
+
+        T task = (T) mTasks[--mSize];
+        mTasks[mSize] = null;
+        return task;
+    }
+
+    public synchronized void release(T task) {
+        if (mSize < mTasks.length) {
+            mTasks[mSize++] = task;
+        }
+    }
+
+}
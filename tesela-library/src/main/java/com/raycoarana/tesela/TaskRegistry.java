@@ -0,0 +1,156 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Pending and running background tasks, so they can be cancelled by tag, by owner or once nothing
+ * consumes their result. Tasks are split into stripes by owner, each with its own lock, so tasks
+ * of different presenters rarely contend when they are submitted and finish. Cancelling by owner
+ * only visits the owner's stripe; by tag or by consumer visits every stripe, one at a time.
+ */
+class TaskRegistry {
+
+    private static final int STRIPE_COUNT = 16;
+
+    private final Stripe[] mStripes = new Stripe[STRIPE_COUNT];
+
+    TaskRegistry() {
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            mStripes[i] = new Stripe();
+        }
+    }
+
+    void add(BackgroundTask task) {
+        getStripe(task.getOwner()).add(task);
+    }
+
+    void remove(BackgroundTask task) {
+        getStripe(task.getOwner()).remove(task);
+    }
+
+    void cancel(BackgroundTask task) {
+        getStripe(task.getOwner()).cancel(task);
+    }
+
+    void cancelTag(String tag) {
+        for (Stripe stripe : mStripes) {
+            stripe.cancelTag(tag);
+        }
+    }
+
+    void cancelOwner(Object owner) {
+        getStripe(owner).cancelOwner(owner);
+    }
+
+    void cancelWithoutLiveConsumer() {
+        for (Stripe stripe : mStripes) {
+            stripe.cancelWithoutLiveConsumer();
+        }
+    }
+
+    private Stripe getStripe(Object owner) {
+        if (owner == null) {
+            return mStripes[0];
+        }
+        int hash = System.identityHashCode(owner);
+        hash ^= hash >>> 16;
+        return mStripes[hash & (STRIPE_COUNT - 1)];
+    }
+
+    private static final class Stripe {
+
+        private BackgroundTask mHead;
+
+        synchronized void add(BackgroundTask task) {
+            task.mPrevious = null;
+            task.mNext = mHead;
+            if (mHead != null) {
+                mHead.mPrevious = task;
+            }
+            mHead = task;
+            task.mRegistered = true;
+        }
+
+        synchronized void remove(BackgroundTask task) {
+            unlink(task);
+        }
+
+        synchronized void cancel(BackgroundTask task) {
+            if (task.mRegistered) {
+                cancelLocked(task);
+            }
+        }
+
+        synchronized void cancelTag(String tag) {
+            BackgroundTask task = mHead;
+            while (task != null) {
+                BackgroundTask next = task.mNext;
+                if (tag.equals(task.getTag())) {
+                    cancelLocked(task);
+                }
+                task = next;
+            }
+        }
+
+        synchronized void cancelOwner(Object owner) {
+            BackgroundTask task = mHead;
+            while (task != null) {
+                BackgroundTask next = task.mNext;
+                if (task.getOwner() == owner) {
+                    cancelLocked(task);
+                }
+                task = next;
+            }
+        }
+
+        synchronized void cancelWithoutLiveConsumer() {
+            BackgroundTask task = mHead;
+            while (task != null) {
+                BackgroundTask next = task.mNext;
+                if (!task.hasLiveConsumer()) {
+                    cancelLocked(task);
+                }
+                task = next;
+            }
+        }
+
+        private void cancelLocked(BackgroundTask task) {
+            if (task.requestCancel()) {
+                unlink(task);
+            }
+        }
+
+        private void unlink(BackgroundTask task) {
+            if (!task.mRegistered) {
+                return;
+            }
+
+            if (task.mPrevious != null) {
+                task.mPrevious.mNext = task.mNext;
+            } else {
+                mHead = task.mNext;
+            }
+            if (task.mNext != null) {
+                task.mNext.mPrevious = task.mPrevious;
+            }
+            task.mPrevious = null;
+            task.mNext = null;
+            task.mRegistered = false;
+        }
+
+    }
+
+}
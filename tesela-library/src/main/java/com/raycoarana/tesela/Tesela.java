@@ -15,26 +15,156 @@
 */
 package com.raycoarana.tesela;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class Tesela {
 
-    private static Tesela sInstance;
+    private static volatile Tesela sInstance;
 
     private TeselaExecutor mTeselaExecutor;
+    private final TeselaMonitor mMonitor;
+    private final Map<String, Executor> mPools;
+    private volatile ResultStore mResultStore;
+    private TaskRegistry mTaskRegistry = new TaskRegistry();
+    private final AtomicLong mTimedOutCount = new AtomicLong();
+    private final AtomicInteger mStuckCount = new AtomicInteger();
 
     public Tesela(TeselaExecutor teselaExecutor) {
+        this(teselaExecutor, null);
+    }
+
+    public Tesela(TeselaExecutor teselaExecutor, TeselaMonitor monitor) {
+        this(teselaExecutor, monitor, Collections.<String, Executor>emptyMap());
+    }
+
+    /**
+     * Pools are the thread pools, by name, where @Background(pool = ...) methods run. The rest of
+     * the work runs on the executor, which is also the one handing work to the pools.
+     */
+    public Tesela(TeselaExecutor teselaExecutor, TeselaMonitor monitor, Map<String, ? extends Executor> pools) {
         mTeselaExecutor = teselaExecutor;
+        mMonitor = monitor;
+        mPools = new HashMap<>(pools);
     }
 
+    /**
+     * Sets up Tesela, or sets it up again with another executor, monitor and pools. The result
+     * store and the background work already submitted carry over to the new setup, so that work
+     * can still be cancelled, while the timed out and stuck counts start again from zero.
+     */
     public static void init(TeselaExecutor teselaExecutor) {
-        sInstance = new Tesela(teselaExecutor);
+        init(new Tesela(teselaExecutor));
+    }
+
+    /** Like {@link #init(TeselaExecutor)}, with a monitor, which may be null. */
+    public static void init(TeselaExecutor teselaExecutor, TeselaMonitor monitor) {
+        init(new Tesela(teselaExecutor, monitor));
+    }
+
+    /** Like {@link #init(TeselaExecutor)}, with a monitor, which may be null, and pools. */
+    public static void init(TeselaExecutor teselaExecutor, TeselaMonitor monitor, Map<String, ? extends Executor> pools) {
+        init(new Tesela(teselaExecutor, monitor, pools));
+    }
+
+    private static synchronized void init(Tesela instance) {
+        Tesela previous = sInstance;
+        if (previous != null) {
+            instance.mResultStore = previous.mResultStore;
+            instance.mTaskRegistry = previous.mTaskRegistry;
+        }
+        sInstance = instance;
+    }
+
+    /** The pool registered with the given name, or null if there is none. */
+    public static Executor getPool(String name) {
+        return getInstance().mPools.get(name);
     }
 
     public static TeselaExecutor getExecutor() {
+        return getInstance().mTeselaExecutor;
+    }
+
+    public static void cancelTag(String tag) {
+        getInstance().mTaskRegistry.cancelTag(tag);
+    }
+
+    public static void cancelPresenter(Object presenter) {
+        getInstance().mTaskRegistry.cancelOwner(presenter);
+    }
+
+    public static synchronized void setResultStore(ResultStore resultStore) {
+        getInstance().mResultStore = resultStore;
+    }
+
+    public static void clearCaches() {
+        ResultCache.clearAll();
+    }
+
+    /** Number of @Background calls that have run past their timeout. */
+    public static long getTimedOutCount() {
+        return getInstance().mTimedOutCount.get();
+    }
+
+    /** Number of @Background calls that timed out and still haven't returned. */
+    public static int getStuckCount() {
+        return getInstance().mStuckCount.get();
+    }
+
+    /**
+     * Counts the call as timed out and stuck in the current instance, which is returned so the
+     * call is also marked as returned there, even if Tesela is initialized again meanwhile.
+     */
+    static Tesela backgroundCallTimedOut(BackgroundTask task) {
+        Tesela instance = sInstance;
+        if (instance != null) {
+            instance.mTimedOutCount.incrementAndGet();
+            instance.mStuckCount.incrementAndGet();
+            if (instance.mTeselaExecutor instanceof StuckWorkListener) {
+                ((StuckWorkListener) instance.mTeselaExecutor).onWorkStuck(task);
+            }
+        }
+        return instance;
+    }
+
+    void timedOutCallReturned(BackgroundTask task) {
+        mStuckCount.decrementAndGet();
+        if (mTeselaExecutor instanceof StuckWorkListener) {
+            ((StuckWorkListener) mTeselaExecutor).onStuckWorkReturned(task);
+        }
+    }
+
+    static void cancelTasksWithoutLiveConsumer() {
+        Tesela instance = sInstance;
+        if (instance != null) {
+            instance.mTaskRegistry.cancelWithoutLiveConsumer();
+        }
+    }
+
+    static ResultStore getResultStore() {
+        Tesela instance = sInstance;
+        return instance != null ? instance.mResultStore : null;
+    }
+
+    static TeselaMonitor getMonitor() {
+        Tesela instance = sInstance;
+        return instance != null ? instance.mMonitor : null;
+    }
+
+    static TaskRegistry getTaskRegistry() {
+        return getInstance().mTaskRegistry;
+    }
+
+    private static Tesela getInstance() {
         if (sInstance == null) {
             throw new IllegalStateException("Tesela not initialized, you must call init() method");
         }
 
-        return sInstance.mTeselaExecutor;
+        return sInstance;
     }
 
 }
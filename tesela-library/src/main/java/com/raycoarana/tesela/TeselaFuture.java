@@ -0,0 +1,225 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of a @Background method. Works on Java 7, where CompletableFuture is not available.
+ * The generated wrapper completes it from the background thread once the method returns. Use
+ * {@link #addCallback(Callback)} to be told of the result instead of blocking on {@link #get()}.
+ */
+public class TeselaFuture<T> implements Future<T> {
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_COMPLETED = 1;
+    private static final int STATE_FAILED = 2;
+    private static final int STATE_CANCELLED = 3;
+
+    private int mState = STATE_PENDING;
+    private T mValue;
+    private Throwable mError;
+    private BackgroundTask mTask;
+    private List<Callback<? super T>> mCallbacks;
+
+    /**
+     * Told of the result of a future. Callbacks run on the thread that completes it, usually a
+     * background one, so call a @UI method from them to update the view.
+     */
+    public interface Callback<T> {
+
+        void onSuccess(T value);
+
+        /** Called with a {@link CancellationException} when the future is cancelled. */
+        void onFailure(Throwable error);
+
+    }
+
+    public static <T> TeselaFuture<T> completed(T value) {
+        TeselaFuture<T> future = new TeselaFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    public static <T> TeselaFuture<T> failed(Throwable error) {
+        TeselaFuture<T> future = new TeselaFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    public synchronized void attach(BackgroundTask task) {
+        mTask = task;
+    }
+
+    public boolean complete(T value) {
+        List<Callback<? super T>> callbacks;
+        synchronized (this) {
+            if (mState != STATE_PENDING) {
+                return false;
+            }
+
+            mValue = value;
+            mState = STATE_COMPLETED;
+            callbacks = onDone();
+        }
+
+        notifyCallbacks(callbacks);
+        return true;
+    }
+
+    public boolean completeExceptionally(Throwable error) {
+        List<Callback<? super T>> callbacks;
+        synchronized (this) {
+            if (mState != STATE_PENDING) {
+                return false;
+            }
+
+            mError = error;
+            mState = STATE_FAILED;
+            callbacks = onDone();
+        }
+
+        notifyCallbacks(callbacks);
+        return true;
+    }
+
+    /**
+     * Adds a callback told of the result once the future is done. If it is already done, the
+     * callback runs right away on the calling thread.
+     */
+    public void addCallback(Callback<? super T> callback) {
+        synchronized (this) {
+            if (mState == STATE_PENDING) {
+                if (mCallbacks == null) {
+                    mCallbacks = new ArrayList<>(1);
+                }
+                mCallbacks.add(callback);
+                return;
+            }
+        }
+
+        notifyCallback(callback);
+    }
+
+    /**
+     * Cancels the future. The background task that would complete it is only cancelled, and
+     * interrupted if already running, when mayInterruptIfRunning is true.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        BackgroundTask task;
+        List<Callback<? super T>> callbacks;
+        synchronized (this) {
+            if (mState != STATE_PENDING) {
+                return false;
+            }
+
+            mState = STATE_CANCELLED;
+            task = mTask;
+            callbacks = onDone();
+        }
+
+        if (mayInterruptIfRunning && task != null) {
+            task.cancel();
+        }
+        notifyCallbacks(callbacks);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mState == STATE_CANCELLED;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mState != STATE_PENDING;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (mState == STATE_PENDING) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long remainingNanos = unit.toNanos(timeout);
+        long deadline = System.nanoTime() + remainingNanos;
+        while (mState == STATE_PENDING) {
+            if (remainingNanos <= 0) {
+                throw new TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+            remainingNanos = deadline - System.nanoTime();
+        }
+        return getResult();
+    }
+
+    private List<Callback<? super T>> onDone() {
+        List<Callback<? super T>> callbacks = mCallbacks;
+        mCallbacks = null;
+        mTask = null;
+        notifyAll();
+        return callbacks;
+    }
+
+    private void notifyCallbacks(List<Callback<? super T>> callbacks) {
+        if (callbacks == null) {
+            return;
+        }
+        for (Callback<? super T> callback : callbacks) {
+            notifyCallback(callback);
+        }
+    }
+
+    private void notifyCallback(Callback<? super T> callback) {
+        int state;
+        T value;
+        Throwable error;
+        synchronized (this) {
+            state = mState;
+            value = mValue;
+            error = mError;
+        }
+
+        if (state == STATE_COMPLETED) {
+            callback.onSuccess(value);
+        } else {
+            callback.onFailure(state == STATE_CANCELLED ? new CancellationException() : error);
+        }
+    }
+
+    private T getResult() throws ExecutionException {
+        switch (mState) {
+            case STATE_FAILED:
+                throw new ExecutionException(mError);
+            case STATE_CANCELLED:
+                throw new CancellationException();
+            default:
+                return mValue;
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Receives the timings of every dispatched call, registered with
+ * {@link Tesela#init(TeselaExecutor, TeselaMonitor)}. Times are {@link System#nanoTime()} values.
+ * Methods are called from the thread that ran the call, so they must be fast and thread safe.
+ */
+public interface TeselaMonitor {
+
+    /**
+     * A @Background call finished. The name is the presenter and method, like
+     * "MainPresenter.loadData".
+     */
+    void onBackgroundCallFinished(String name, String tag, long enqueuedAt, long startedAt, long finishedAt);
+
+    /** A @UI call finished. Calls made on the UI thread itself were posted when they started. */
+    void onUICallFinished(String name, long postedAt, long startedAt, long finishedAt);
+
+}
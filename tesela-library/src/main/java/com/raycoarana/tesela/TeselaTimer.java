@@ -0,0 +1,53 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single timer thread shared by every rate limiter, batcher and timeout watchdog. Scheduled work
+ * must only hand calls over to the executor, never do the work itself.
+ */
+final class TeselaTimer {
+
+    private static ScheduledThreadPoolExecutor sTimer;
+
+    private TeselaTimer() {
+    }
+
+    static ScheduledFuture<?> schedule(Runnable runnable, long delayNanos) {
+        return getTimer().schedule(runnable, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getTimer() {
+        if (sTimer == null) {
+            sTimer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "tesela-timer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            sTimer.setRemoveOnCancelPolicy(true);
+        }
+        return sTimer;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+/**
+ * Runs the first offered call right away and opens a window of the interval. Calls offered while
+ * the window is open are folded into one, which runs when the window closes and opens a new one.
+ */
+public abstract class Throttler extends RateLimiter {
+
+    private Object[] mPendingArguments;
+    private boolean mWindowOpen;
+
+    private final Runnable mCloseWindow = new Runnable() {
+        @Override
+        public void run() {
+            Object[] arguments;
+            synchronized (Throttler.this) {
+                arguments = mPendingArguments;
+                mPendingArguments = null;
+                if (arguments == null) {
+                    mWindowOpen = false;
+                    return;
+                }
+            }
+            schedule(this, mIntervalNanos);
+            dispatch(arguments);
+        }
+    };
+
+    public Throttler(long intervalMs) {
+        super(intervalMs);
+    }
+
+    @Override
+    public void offer(Object[] arguments) {
+        synchronized (this) {
+            if (mWindowOpen) {
+                mPendingArguments = arguments;
+                return;
+            }
+            mWindowOpen = true;
+        }
+        schedule(mCloseWindow, mIntervalNanos);
+        dispatch(arguments);
+    }
+
+}
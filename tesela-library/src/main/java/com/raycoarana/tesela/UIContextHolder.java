@@ -26,7 +26,7 @@ public class UIContextHolder<V> {
     }
 
     private UIContextHolder(V view) {
-        mViewReference = new WeakReference<>(view);
+        mViewReference = new WeakReference<>(view, ViewReaper.getQueue());
     }
 
     public V get() {
@@ -0,0 +1,57 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.lang.ref.ReferenceQueue;
+
+/**
+ * Watches the weak references held by {@link UIContextHolder}. When the GC collects a view, every
+ * pending or running {@link BackgroundTask} left without a live consumer is cancelled.
+ */
+class ViewReaper extends Thread {
+
+    private static final ReferenceQueue<Object> sQueue = new ReferenceQueue<>();
+    private static ViewReaper sInstance;
+
+    private ViewReaper() {
+        super("tesela-view-reaper");
+        setDaemon(true);
+    }
+
+    static synchronized ReferenceQueue<Object> getQueue() {
+        if (sInstance == null) {
+            sInstance = new ViewReaper();
+            sInstance.start();
+        }
+        return sQueue;
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            try {
+                sQueue.remove();
+                while (sQueue.poll() != null) {
+                    // Collapse a burst of collected views into a single pass
+                }
+                Tesela.cancelTasksWithoutLiveConsumer();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+}
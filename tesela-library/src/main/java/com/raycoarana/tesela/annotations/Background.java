@@ -15,6 +15,9 @@
 */
 package com.raycoarana.tesela.annotations;
 
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.Priority;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -25,6 +28,45 @@ import java.lang.annotation.Target;
 public @interface Background {
 
     String NONE = "none";
+    String CPU = "cpu";
+    String IO = "io";
+    int UNBOUNDED = 0;
+
+    enum Mode {
+        ALL,
+        LATEST
+    }
 
     String tag() default NONE;
+
+    Priority priority() default Priority.NORMAL;
+
+    boolean dedupe() default false;
+
+    Mode mode() default Mode.ALL;
+
+    /** Name of the pool where calls run, like {@link #CPU}, {@link #IO} or one registered in Tesela.init(). */
+    String pool() default NONE;
+
+    /**
+     * Maximum pending calls of the tag, counting those of every method with the same tag, before
+     * the overflow policy of this method applies to its new calls. Needs a tag.
+     */
+    int capacity() default UNBOUNDED;
+
+    /**
+     * What a call does when its tag is full. Calls made from the UI thread are dropped instead of
+     * running or waiting on it, and batched or rate limited methods, submitted from the timer
+     * thread, can't use {@link Overflow#CALLER_RUNS} nor {@link Overflow#BLOCK}.
+     */
+    Overflow overflow() default Overflow.DROP_NEWEST;
+
+    /** How long a call waits for room in the queue with {@link Overflow#BLOCK}. */
+    long overflowTimeoutMs() default 0;
+
+    /** How long a call may run before it is interrupted, or zero to let it run for as long as it takes. */
+    long timeoutMs() default 0;
+
+    /** Name of the @UI method called when a call times out, taking no parameters or the same ones. */
+    String onTimeout() default NONE;
 }
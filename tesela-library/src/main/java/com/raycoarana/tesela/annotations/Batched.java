@@ -0,0 +1,39 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Collects the argument of every call to a single-parameter @Background method and hands them,
+ * as a list, to the target method in one background task. A batch is sent when it reaches
+ * maxSize items or maxDelayMs after its first item, whichever comes first. Batches are not
+ * cancelled when the view goes away.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface Batched {
+
+    int maxSize() default 64;
+
+    long maxDelayMs() default 100;
+
+    /** Name of the method receiving each batch, it must take a single List parameter. */
+    String target();
+}
@@ -0,0 +1,47 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Caches the results of a @Background method that returns a future, keyed by its arguments.
+ * The cache is shared by every instance of the presenter, so only use it on pure lookups.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface Cached {
+
+    String NONE = "";
+
+    /** Time a result stays valid, zero means it never expires. */
+    long ttlMs() default 0;
+
+    int maxEntries() default 16;
+
+    /** Name of a @UI method with a single parameter that receives every result, cached or not. */
+    String deliverTo() default NONE;
+
+    /**
+     * Also keeps results in the store set with Tesela.setResultStore(), so they survive process
+     * restarts. Expired stored results are still delivered to deliverTo while a fresh one is
+     * computed.
+     */
+    boolean persistent() default false;
+}
@@ -23,4 +23,6 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD})
 public @interface UI {
+
+    boolean conflate() default false;
 }
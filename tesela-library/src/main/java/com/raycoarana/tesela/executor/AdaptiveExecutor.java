@@ -0,0 +1,314 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link PriorityExecutor} that sizes itself. Every sample interval it looks at how long work
+ * waited queued and how many tasks finished per second, and moves its worker count within its
+ * bounds by hill climbing on that throughput: a move that raised it is followed by a bigger one
+ * in the same direction, a move that lowered it is undone, and a thread that made no difference
+ * is taken back. Once a move is undone or taken back the size is held for a few samples before
+ * probing a thread up or down again, and every fruitless probe doubles that hold, so a pool that
+ * found its size stops resizing. While work does not wait the pool shrinks towards its minimum.
+ * <p>
+ * Samples are taken by the workers as they finish tasks, so an idle pool makes no decisions and
+ * keeps its size until work arrives again. The last decisions that changed the worker count are
+ * available from {@link #getStats()}.
+ */
+public class AdaptiveExecutor extends PriorityExecutor {
+
+    public static final long DEFAULT_SAMPLE_INTERVAL_MS = 500;
+    private static final long IDLE_QUEUE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double THROUGHPUT_TOLERANCE = 0.05;
+    private static final int MIN_SAMPLE_TASKS = 8;
+    private static final int MAX_SAMPLE_INTERVALS = 8;
+    private static final int MAX_STEP = 8;
+    private static final int MAX_DECISIONS = 32;
+    private static final int MIN_HOLD_SAMPLES = 2;
+    private static final int MAX_HOLD_SAMPLES = 64;
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final int mMinThreads;
+    private final int mMaxThreads;
+    private final long mSampleIntervalNanos;
+    private final Clock mClock;
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mQueueWaitNanos = new AtomicLong();
+    private final AtomicLong mNextSampleAt;
+    private final ArrayDeque<Decision> mDecisions = new ArrayDeque<>();
+    private long mLastSampleAt;
+    private double mThroughput;
+    private long mAverageQueueWaitNanos;
+    private double mBaselineThroughput;
+    private int mLastMove;
+    private int mStep = 1;
+    private int mHoldSamples = MIN_HOLD_SAMPLES;
+    private int mHoldRemaining;
+
+    public AdaptiveExecutor(int minThreads, int maxThreads) {
+        this(minThreads, maxThreads, DEFAULT_SAMPLE_INTERVAL_MS, new WorkerThreadFactory("tesela-adaptive"));
+    }
+
+    public AdaptiveExecutor(int minThreads, int maxThreads, long sampleIntervalMs, ThreadFactory threadFactory) {
+        this(minThreads, maxThreads, sampleIntervalMs, threadFactory, SYSTEM_CLOCK);
+    }
+
+    AdaptiveExecutor(int minThreads, int maxThreads, long sampleIntervalMs, ThreadFactory threadFactory, Clock clock) {
+        super(checkBounds(minThreads, maxThreads), threadFactory);
+        if (sampleIntervalMs <= 0) {
+            throw new IllegalArgumentException("Sample interval must be positive, was " + sampleIntervalMs);
+        }
+        mMinThreads = minThreads;
+        mMaxThreads = maxThreads;
+        mSampleIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sampleIntervalMs);
+        mClock = clock;
+        mLastSampleAt = clock.nanoTime();
+        mNextSampleAt = new AtomicLong(mLastSampleAt + mSampleIntervalNanos);
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(getThreadCount(), mMinThreads, mMaxThreads, mThroughput, mAverageQueueWaitNanos,
+                new ArrayList<>(mDecisions));
+    }
+
+    @Override
+    protected void onTaskFinished(long queueWaitNanos) {
+        mCompletedCount.incrementAndGet();
+        mQueueWaitNanos.addAndGet(queueWaitNanos);
+        long now = mClock.nanoTime();
+        long nextSampleAt = mNextSampleAt.get();
+        if (now - nextSampleAt >= 0 && mNextSampleAt.compareAndSet(nextSampleAt, now + mSampleIntervalNanos)) {
+            sample(now);
+        }
+    }
+
+    private synchronized void sample(long now) {
+        long elapsed = now - mLastSampleAt;
+        long completed = mCompletedCount.get();
+        if (completed < MIN_SAMPLE_TASKS && elapsed < MAX_SAMPLE_INTERVALS * mSampleIntervalNanos) {
+            return;
+        }
+
+        mLastSampleAt = now;
+        completed = mCompletedCount.getAndSet(0);
+        long queueWait = mQueueWaitNanos.getAndSet(0);
+        mThroughput = completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        mAverageQueueWaitNanos = completed > 0 ? queueWait / completed : 0;
+
+        int threadCount = getThreadCount();
+        int move = 0;
+        Reason reason = null;
+        if (mAverageQueueWaitNanos < IDLE_QUEUE_WAIT_NANOS) {
+            move = -1;
+            reason = Reason.NO_QUEUE_WAIT;
+            mBaselineThroughput = 0;
+            mHoldSamples = MIN_HOLD_SAMPLES;
+            mHoldRemaining = 0;
+        } else if (mBaselineThroughput == 0) {
+            move = 1;
+            reason = Reason.QUEUE_WAIT;
+        } else if (mLastMove == 0) {
+            if (mHoldRemaining > 0) {
+                mHoldRemaining--;
+            } else {
+                move = threadCount < mMaxThreads ? 1 : -1;
+                reason = Reason.PROBE;
+                mHoldRemaining = mHoldSamples;
+                mHoldSamples = Math.min(mHoldSamples * 2, MAX_HOLD_SAMPLES);
+            }
+        } else {
+            double change = (mThroughput - mBaselineThroughput) / mBaselineThroughput;
+            if (change > THROUGHPUT_TOLERANCE) {
+                mStep = Math.min(mStep * 2, MAX_STEP);
+                move = Integer.signum(mLastMove) * mStep;
+                reason = Reason.THROUGHPUT_UP;
+                mHoldSamples = MIN_HOLD_SAMPLES;
+            } else if (change < -THROUGHPUT_TOLERANCE) {
+                move = -Integer.signum(mLastMove);
+                reason = Reason.THROUGHPUT_DOWN;
+            } else {
+                move = mLastMove > 0 ? -1 : 0;
+                reason = Reason.THROUGHPUT_FLAT;
+            }
+        }
+        if (reason != Reason.THROUGHPUT_UP) {
+            mStep = 1;
+        }
+        if (reason != Reason.NO_QUEUE_WAIT) {
+            mBaselineThroughput = mThroughput;
+        }
+
+        int newThreadCount = Math.max(mMinThreads, Math.min(mMaxThreads, threadCount + move));
+        // An undone move is not compared against the next sample: the size it goes back to was
+        // already measured, so the search has settled until the next probe
+        boolean settled = reason == Reason.THROUGHPUT_DOWN || reason == Reason.THROUGHPUT_FLAT;
+        mLastMove = settled ? 0 : newThreadCount - threadCount;
+        if (newThreadCount == threadCount) {
+            return;
+        }
+        setThreadCount(newThreadCount);
+        if (mDecisions.size() == MAX_DECISIONS) {
+            mDecisions.removeFirst();
+        }
+        mDecisions.addLast(new Decision(System.currentTimeMillis(), reason, threadCount, newThreadCount,
+                mThroughput, mAverageQueueWaitNanos));
+    }
+
+    private static int checkBounds(int minThreads, int maxThreads) {
+        if (minThreads < 1 || maxThreads < minThreads) {
+            throw new IllegalArgumentException("Invalid thread bounds [" + minThreads + ", " + maxThreads + "]");
+        }
+        return minThreads;
+    }
+
+    public enum Reason {
+        /** Work waited and there was no throughput to compare with, so a thread was added. */
+        QUEUE_WAIT,
+        /** Work did not wait, so a thread was removed. */
+        NO_QUEUE_WAIT,
+        /** The size was held long enough after the last settled move, so one thread is tried up or down. */
+        PROBE,
+        /** The previous move raised throughput, so a bigger one was made in the same direction. */
+        THROUGHPUT_UP,
+        /** The previous move lowered throughput, so it was undone. */
+        THROUGHPUT_DOWN,
+        /** The previous move made no difference. An added thread is taken back, a removed one is not. */
+        THROUGHPUT_FLAT
+    }
+
+    /** Source of the sample times, replaced in tests. */
+    interface Clock {
+
+        long nanoTime();
+
+    }
+
+    public static final class Decision {
+
+        private final long mTimestamp;
+        private final Reason mReason;
+        private final int mPreviousThreadCount;
+        private final int mThreadCount;
+        private final double mThroughput;
+        private final long mAverageQueueWaitNanos;
+
+        private Decision(long timestamp, Reason reason, int previousThreadCount, int threadCount,
+                         double throughput, long averageQueueWaitNanos) {
+            mTimestamp = timestamp;
+            mReason = reason;
+            mPreviousThreadCount = previousThreadCount;
+            mThreadCount = threadCount;
+            mThroughput = throughput;
+            mAverageQueueWaitNanos = averageQueueWaitNanos;
+        }
+
+        /** Wall clock time of the decision, in milliseconds. */
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+
+        public Reason getReason() {
+            return mReason;
+        }
+
+        public int getPreviousThreadCount() {
+            return mPreviousThreadCount;
+        }
+
+        public int getThreadCount() {
+            return mThreadCount;
+        }
+
+        /** Tasks finished per second during the sample that led to the decision. */
+        public double getThroughput() {
+            return mThroughput;
+        }
+
+        public long getAverageQueueWaitNanos() {
+            return mAverageQueueWaitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return mReason + ": " + mPreviousThreadCount + " -> " + mThreadCount + " threads, "
+                    + String.format("%.1f", mThroughput) + " tasks/s, "
+                    + TimeUnit.NANOSECONDS.toMicros(mAverageQueueWaitNanos) + "us queued";
+        }
+
+    }
+
+    public static final class Stats {
+
+        private final int mThreadCount;
+        private final int mMinThreads;
+        private final int mMaxThreads;
+        private final double mThroughput;
+        private final long mAverageQueueWaitNanos;
+        private final List<Decision> mDecisions;
+
+        private Stats(int threadCount, int minThreads, int maxThreads, double throughput,
+                      long averageQueueWaitNanos, List<Decision> decisions) {
+            mThreadCount = threadCount;
+            mMinThreads = minThreads;
+            mMaxThreads = maxThreads;
+            mThroughput = throughput;
+            mAverageQueueWaitNanos = averageQueueWaitNanos;
+            mDecisions = Collections.unmodifiableList(decisions);
+        }
+
+        /** Number of workers, not counting the spare ones standing in for stuck work. */
+        public int getThreadCount() {
+            return mThreadCount;
+        }
+
+        public int getMinThreads() {
+            return mMinThreads;
+        }
+
+        public int getMaxThreads() {
+            return mMaxThreads;
+        }
+
+        /** Tasks finished per second during the last sample. */
+        public double getThroughput() {
+            return mThroughput;
+        }
+
+        public long getAverageQueueWaitNanos() {
+            return mAverageQueueWaitNanos;
+        }
+
+        /** The last decisions taken, oldest first. */
+        public List<Decision> getDecisions() {
+            return mDecisions;
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool for blocking work. Idle threads are reused, a new thread is started when all of them are
+ * busy, up to a maximum, and only then work is queued. Threads idle for longer than the keep alive
+ * time are stopped, so an unused pool holds no threads.
+ */
+public class ElasticExecutor extends ThreadPoolExecutor {
+
+    private final AtomicInteger mInFlightCount = new AtomicInteger();
+
+    public ElasticExecutor(int maxThreads, long keepAliveMs, ThreadFactory threadFactory) {
+        super(0, maxThreads, keepAliveMs, TimeUnit.MILLISECONDS, new ElasticQueue(), threadFactory, new QueueWhenFull());
+        ((ElasticQueue) getQueue()).mExecutor = this;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        mInFlightCount.incrementAndGet();
+        try {
+            super.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            mInFlightCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable runnable, Throwable throwable) {
+        mInFlightCount.decrementAndGet();
+    }
+
+    /** Refuses work while the pool can still start threads and none is idle, making it grow. */
+    private static final class ElasticQueue extends LinkedBlockingQueue<Runnable> {
+
+        private static final long serialVersionUID = 1L;
+
+        private ElasticExecutor mExecutor;
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            int poolSize = mExecutor.getPoolSize();
+            if (poolSize < mExecutor.getMaximumPoolSize() && mExecutor.mInFlightCount.get() > poolSize) {
+                return false;
+            }
+            return super.offer(runnable);
+        }
+
+        private boolean forceOffer(Runnable runnable) {
+            return super.offer(runnable);
+        }
+
+    }
+
+    /** The pool reached its maximum between the queue refusing the work and starting a thread. */
+    private static final class QueueWhenFull implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            if (executor.isShutdown() || !((ElasticQueue) executor.getQueue()).forceOffer(runnable)) {
+                throw new RejectedExecutionException("Pool is shut down");
+            }
+        }
+
+    }
+
+}
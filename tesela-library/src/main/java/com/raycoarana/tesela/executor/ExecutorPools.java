@@ -0,0 +1,73 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.annotations.Background;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Default pools for {@link Background#CPU} and {@link Background#IO} work. The CPU pool is a
+ * {@link PriorityExecutor} with a thread per core. The I/O pool is an {@link ElasticExecutor} of
+ * up to {@link #IO_MAX_THREADS} threads, since they spend most of their time blocked. Both are
+ * created on first use.
+ */
+public final class ExecutorPools {
+
+    public static final int IO_MAX_THREADS = 64;
+    private static final long IO_KEEP_ALIVE_MS = 30000;
+
+    private static Executor sCpuPool;
+    private static Executor sIoPool;
+
+    private ExecutorPools() {
+    }
+
+    /** Both default pools by name, ready to pass to Tesela.init(). */
+    public static Map<String, Executor> defaults() {
+        Map<String, Executor> pools = new HashMap<>();
+        pools.put(Background.CPU, cpu());
+        pools.put(Background.IO, io());
+        return pools;
+    }
+
+    public static synchronized Executor cpu() {
+        if (sCpuPool == null) {
+            sCpuPool = new PriorityExecutor(Runtime.getRuntime().availableProcessors(), new WorkerThreadFactory("tesela-cpu"));
+        }
+        return sCpuPool;
+    }
+
+    public static synchronized Executor io() {
+        if (sIoPool == null) {
+            sIoPool = new ElasticExecutor(IO_MAX_THREADS, IO_KEEP_ALIVE_MS, new WorkerThreadFactory("tesela-io"));
+        }
+        return sIoPool;
+    }
+
+    /** The default pool with the given name, or null if there is none. */
+    static Executor getDefault(String name) {
+        if (Background.CPU.equals(name)) {
+            return cpu();
+        } else if (Background.IO.equals(name)) {
+            return io();
+        }
+        return null;
+    }
+
+}
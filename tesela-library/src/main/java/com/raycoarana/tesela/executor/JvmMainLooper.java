@@ -0,0 +1,108 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Plain JVM stand-in for the Android main looper: a single thread draining a locked queue of
+ * posted messages, like the Android message queue. Useful to run presenters in tests and on
+ * desktop.
+ * <p>
+ * Like on Android, an exception thrown by a message ends the looper thread and reaches its
+ * uncaught exception handler. Give the looper a handler of its own to report those exceptions
+ * and keep running the following messages instead.
+ */
+public class JvmMainLooper implements MainLooper {
+
+    private static final ThreadLocal<JvmMainLooper> sLoopers = new ThreadLocal<>();
+
+    private final BlockingQueue<Runnable> mQueue = new LinkedBlockingQueue<>();
+    private final Thread mThread;
+    private final Thread.UncaughtExceptionHandler mExceptionHandler;
+    private volatile boolean mQuit;
+
+    public JvmMainLooper() {
+        this(null);
+    }
+
+    /** Reports exceptions thrown by messages to the given handler, if any, and keeps looping. */
+    public JvmMainLooper(Thread.UncaughtExceptionHandler exceptionHandler) {
+        mExceptionHandler = exceptionHandler;
+        mThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "main");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    public static JvmMainLooper myLooper() {
+        return sLoopers.get();
+    }
+
+    @Override
+    public boolean isCurrentThread() {
+        return Thread.currentThread() == mThread;
+    }
+
+    @Override
+    public void post(Runnable runnable) {
+        mQueue.add(runnable);
+    }
+
+    /** Stops the looper right away. Messages still queued, and those posted later, never run. */
+    public void quit() {
+        mQuit = true;
+        mThread.interrupt();
+    }
+
+    /** Stops the looper once the messages already queued have run. Those posted later never run. */
+    public void quitSafely() {
+        mQueue.add(new Runnable() {
+            @Override
+            public void run() {
+                mQuit = true;
+            }
+        });
+    }
+
+    private void loop() {
+        sLoopers.set(this);
+        while (!mQuit) {
+            Runnable runnable;
+            try {
+                runnable = mQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (mExceptionHandler == null) {
+                runnable.run();
+            } else {
+                try {
+                    runnable.run();
+                } catch (RuntimeException e) {
+                    mExceptionHandler.uncaughtException(mThread, e);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.QueueLimit;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link PooledTeselaExecutor} that runs UI work on a {@link MainLooper} through a
+ * {@link MainThreadDispatcher}, so background threads never contend on the looper queue.
+ */
+public class LooperTeselaExecutor extends PooledTeselaExecutor {
+
+    private final MainLooper mLooper;
+    private final MainThreadDispatcher mDispatcher;
+
+    public LooperTeselaExecutor(MainLooper looper) {
+        mLooper = looper;
+        mDispatcher = new MainThreadDispatcher(looper);
+    }
+
+    public LooperTeselaExecutor(MainLooper looper, Executor workerPool) {
+        this(looper, workerPool, null);
+    }
+
+    public LooperTeselaExecutor(MainLooper looper, Executor workerPool, QueueLimit globalLimit) {
+        super(workerPool, globalLimit);
+        mLooper = looper;
+        mDispatcher = new MainThreadDispatcher(looper);
+    }
+
+    @Override
+    public boolean isMainCurrentThread() {
+        return mLooper.isCurrentThread();
+    }
+
+    @Override
+    public void executeInUIThread(Runnable runnable) {
+        mDispatcher.execute(runnable);
+    }
+
+}
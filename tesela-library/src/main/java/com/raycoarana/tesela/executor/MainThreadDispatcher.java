@@ -0,0 +1,82 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Funnels UI work from any number of threads into a lock-free queue, and posts a single drain
+ * message to the {@link MainLooper} while there is work pending. The drain runs everything queued,
+ * so a burst of calls costs one message instead of one per call. After running its budget of
+ * tasks, the drain posts itself again, letting other messages of the looper run in between.
+ */
+public class MainThreadDispatcher implements Executor {
+
+    public static final int DEFAULT_DRAIN_BUDGET = 256;
+
+    private final MainLooper mLooper;
+    private final int mDrainBudget;
+    private final Queue<Runnable> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean mDrainPosted = new AtomicBoolean();
+    private final Runnable mDrain = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    public MainThreadDispatcher(MainLooper looper) {
+        this(looper, DEFAULT_DRAIN_BUDGET);
+    }
+
+    public MainThreadDispatcher(MainLooper looper, int drainBudget) {
+        if (drainBudget <= 0) {
+            throw new IllegalArgumentException("Drain budget must be positive");
+        }
+        mLooper = looper;
+        mDrainBudget = drainBudget;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        mQueue.offer(runnable);
+        postDrainIfNeeded();
+    }
+
+    private void postDrainIfNeeded() {
+        if (!mDrainPosted.get() && mDrainPosted.compareAndSet(false, true)) {
+            mLooper.post(mDrain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable runnable;
+            for (int remaining = mDrainBudget; remaining > 0 && (runnable = mQueue.poll()) != null; remaining--) {
+                runnable.run();
+            }
+        } finally {
+            mDrainPosted.set(false);
+            if (!mQueue.isEmpty()) {
+                postDrainIfNeeded();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.BackgroundTask;
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.Priority;
+import com.raycoarana.tesela.PriorityTeselaExecutor;
+import com.raycoarana.tesela.QueueLimit;
+import com.raycoarana.tesela.StuckWorkListener;
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaExecutor;
+import com.raycoarana.tesela.annotations.Background;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Background half of a {@link TeselaExecutor}: untagged work goes straight to the worker pool and
+ * tagged work is serialized per tag on top of it. The default pool is a {@link PriorityExecutor}
+ * sized to the number of cores. Subclasses provide the UI thread half.
+ * <p>
+ * Work of @Background methods with a pool goes to the pool registered with that name in
+ * Tesela.init() or, for {@link Background#CPU} and {@link Background#IO}, to the
+ * {@link ExecutorPools} defaults. Pools are looked up on every call, so a later Tesela.init()
+ * takes effect right away. Each pool serializes its own tags. Pools a later Tesela.init() replaces
+ * or drops are forgotten, along with their counts.
+ * <p>
+ * Tags are bounded by the {@link QueueLimit} their @Background methods declare, and all pending
+ * work by the optional global limit given at construction, which applies to each pool on its own.
+ * Work submitted from the UI thread is never run on it nor waits for room: when the policy is
+ * {@link Overflow#CALLER_RUNS} or {@link Overflow#BLOCK}, a full queue drops it. Batched and rate
+ * limited calls are handed over from Tesela's timer thread, which a global limit with those
+ * policies would also stall.
+ * <p>
+ * While a timed out call is stuck in one of the workers of a {@link PriorityExecutor}, the pool
+ * gets a spare worker, so the rest of the work keeps the same parallelism.
+ */
+public abstract class PooledTeselaExecutor implements PriorityTeselaExecutor, StuckWorkListener {
+
+    private final QueueLimit mGlobalLimit;
+    private final TaggedExecutor mTaggedExecutor;
+    private final ConcurrentMap<String, TaggedExecutor> mPoolExecutors = new ConcurrentHashMap<>();
+
+    public PooledTeselaExecutor() {
+        this(new PriorityExecutor(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public PooledTeselaExecutor(Executor workerPool) {
+        this(workerPool, null);
+    }
+
+    public PooledTeselaExecutor(Executor workerPool, QueueLimit globalLimit) {
+        mGlobalLimit = globalLimit;
+        mTaggedExecutor = new TaggedExecutor(workerPool, globalLimit);
+    }
+
+    @Override
+    public void executeInBackground(Runnable runnable) {
+        getTaggedExecutor(runnable).execute(runnable, Priority.NORMAL, !isMainCurrentThread());
+    }
+
+    @Override
+    public void executeInBackground(Runnable runnable, String tag) {
+        executeInBackground(runnable, tag, Priority.NORMAL);
+    }
+
+    @Override
+    public void executeInBackground(Runnable runnable, String tag, Priority priority) {
+        TaggedExecutor taggedExecutor = getTaggedExecutor(runnable);
+        if (tag == null || Background.NONE.equals(tag)) {
+            taggedExecutor.execute(runnable, priority, !isMainCurrentThread());
+        } else {
+            taggedExecutor.execute(runnable, tag, priority, getQueueLimit(runnable), !isMainCurrentThread());
+        }
+    }
+
+    @Override
+    public void onWorkStuck(BackgroundTask task) {
+        Executor workerPool = getTaggedExecutor(task).getWorkerPool();
+        if (workerPool instanceof PriorityExecutor) {
+            ((PriorityExecutor) workerPool).addSpareWorker();
+        }
+    }
+
+    @Override
+    public void onStuckWorkReturned(BackgroundTask task) {
+        Executor workerPool = getTaggedExecutor(task).getWorkerPool();
+        if (workerPool instanceof PriorityExecutor) {
+            ((PriorityExecutor) workerPool).removeSpareWorker();
+        }
+    }
+
+    public long getRejectedCount() {
+        long count = mTaggedExecutor.getRejectedCount();
+        for (TaggedExecutor poolExecutor : getPoolExecutors()) {
+            count += poolExecutor.getRejectedCount();
+        }
+        return count;
+    }
+
+    public long getRejectedCount(String tag) {
+        long count = mTaggedExecutor.getRejectedCount(tag);
+        for (TaggedExecutor poolExecutor : getPoolExecutors()) {
+            count += poolExecutor.getRejectedCount(tag);
+        }
+        return count;
+    }
+
+    public long getCallerRunsCount() {
+        long count = mTaggedExecutor.getCallerRunsCount();
+        for (TaggedExecutor poolExecutor : getPoolExecutors()) {
+            count += poolExecutor.getCallerRunsCount();
+        }
+        return count;
+    }
+
+    private TaggedExecutor getTaggedExecutor(Runnable runnable) {
+        if (!(runnable instanceof BackgroundTask)) {
+            return mTaggedExecutor;
+        }
+        String pool = ((BackgroundTask) runnable).getPool();
+        if (Background.NONE.equals(pool)) {
+            return mTaggedExecutor;
+        }
+
+        Executor workerPool = getWorkerPool(pool);
+        if (workerPool == null) {
+            throw new IllegalStateException("No pool named " + pool + " registered in Tesela.init()");
+        }
+        TaggedExecutor poolExecutor = mPoolExecutors.get(pool);
+        if (poolExecutor == null || poolExecutor.getWorkerPool() != workerPool) {
+            poolExecutor = addPoolExecutor(pool, workerPool);
+        }
+        return poolExecutor;
+    }
+
+    private synchronized TaggedExecutor addPoolExecutor(String pool, Executor workerPool) {
+        evictStalePoolExecutors();
+        TaggedExecutor poolExecutor = mPoolExecutors.get(pool);
+        if (poolExecutor != null) {
+            return poolExecutor;
+        }
+        for (TaggedExecutor other : mPoolExecutors.values()) {
+            if (other.getWorkerPool() == workerPool) {
+                poolExecutor = other;
+                break;
+            }
+        }
+        if (poolExecutor == null) {
+            poolExecutor = new TaggedExecutor(workerPool, mGlobalLimit);
+        }
+        mPoolExecutors.put(pool, poolExecutor);
+        return poolExecutor;
+    }
+
+    /** The executors of the pools still registered, once each even if they have several names. */
+    private synchronized Collection<TaggedExecutor> getPoolExecutors() {
+        evictStalePoolExecutors();
+        Set<TaggedExecutor> poolExecutors = Collections.newSetFromMap(new IdentityHashMap<TaggedExecutor, Boolean>());
+        poolExecutors.addAll(mPoolExecutors.values());
+        return poolExecutors;
+    }
+
+    private void evictStalePoolExecutors() {
+        Iterator<Map.Entry<String, TaggedExecutor>> iterator = mPoolExecutors.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, TaggedExecutor> entry = iterator.next();
+            if (getWorkerPool(entry.getKey()) != entry.getValue().getWorkerPool()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static Executor getWorkerPool(String pool) {
+        Executor workerPool = Tesela.getPool(pool);
+        return workerPool != null ? workerPool : ExecutorPools.getDefault(pool);
+    }
+
+    private static QueueLimit getQueueLimit(Runnable runnable) {
+        return runnable instanceof BackgroundTask ? ((BackgroundTask) runnable).getQueueLimit() : null;
+    }
+
+}
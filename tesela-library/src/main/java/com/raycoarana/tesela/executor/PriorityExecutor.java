@@ -0,0 +1,173 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.Priority;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed size worker pool that serves work by priority. Each submission gets a virtual deadline of
+ * its arrival time plus an aging delay that grows with lower priorities, and the queue is ordered
+ * by that deadline. Higher priorities jump ahead of lower ones, but a low priority task that has
+ * waited long enough is eventually served before newly arrived high priority work.
+ */
+public class PriorityExecutor implements Executor {
+
+    private static final long DEFAULT_AGING_STEP_MS = 50;
+
+    private final ThreadPoolExecutor mThreadPool;
+    private final long mAgingStepNanos;
+    private final AtomicLong mSequence = new AtomicLong();
+    private int mThreadCount;
+    private int mSpareWorkerCount;
+
+    public PriorityExecutor(int threadCount) {
+        this(threadCount, DEFAULT_AGING_STEP_MS, new WorkerThreadFactory("tesela-worker"));
+    }
+
+    public PriorityExecutor(int threadCount, ThreadFactory threadFactory) {
+        this(threadCount, DEFAULT_AGING_STEP_MS, threadFactory);
+    }
+
+    public PriorityExecutor(int threadCount, long agingStepMs, ThreadFactory threadFactory) {
+        mThreadPool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), threadFactory);
+        mAgingStepNanos = TimeUnit.MILLISECONDS.toNanos(agingStepMs);
+        mThreadCount = threadCount;
+    }
+
+    @Override
+    public void execute(Runnable runnable) {
+        execute(runnable, Priority.NORMAL);
+    }
+
+    public void execute(Runnable runnable, Priority priority) {
+        long now = System.nanoTime();
+        mThreadPool.execute(new PrioritizedRunnable(runnable, now, now + getAgingDelay(priority), mSequence.getAndIncrement()));
+    }
+
+    /**
+     * Adds a worker on top of the fixed count, to stand in for one held by work that is stuck.
+     * Each spare worker is removed with {@link #removeSpareWorker()}, once it is idle.
+     */
+    public synchronized void addSpareWorker() {
+        mSpareWorkerCount++;
+        updatePoolSize();
+    }
+
+    public synchronized void removeSpareWorker() {
+        if (mSpareWorkerCount == 0) {
+            return;
+        }
+        mSpareWorkerCount--;
+        updatePoolSize();
+    }
+
+    /** Number of workers, not counting spare ones. */
+    public synchronized int getThreadCount() {
+        return mThreadCount;
+    }
+
+    /**
+     * Changes the number of workers. Extra workers stop once they finish the task at hand, new
+     * ones start as work arrives.
+     */
+    protected synchronized void setThreadCount(int threadCount) {
+        if (threadCount == mThreadCount) {
+            return;
+        }
+        mThreadCount = threadCount;
+        updatePoolSize();
+    }
+
+    public int getQueueSize() {
+        return mThreadPool.getQueue().size();
+    }
+
+    public void shutdown() {
+        mThreadPool.shutdown();
+    }
+
+    /** Called on the worker after each task with the time, in nanoseconds, it waited queued. */
+    protected void onTaskFinished(long queueWaitNanos) {
+    }
+
+    private void updatePoolSize() {
+        int size = mThreadCount + mSpareWorkerCount;
+        if (size > mThreadPool.getMaximumPoolSize()) {
+            mThreadPool.setMaximumPoolSize(size);
+            mThreadPool.setCorePoolSize(size);
+        } else {
+            mThreadPool.setCorePoolSize(size);
+            mThreadPool.setMaximumPoolSize(size);
+        }
+    }
+
+    private long getAgingDelay(Priority priority) {
+        switch (priority) {
+            case HIGH:
+                return 0;
+            case LOW:
+                return 4 * mAgingStepNanos;
+            case IDLE:
+                return 16 * mAgingStepNanos;
+            default:
+                return mAgingStepNanos;
+        }
+    }
+
+    private final class PrioritizedRunnable implements Runnable, Comparable<PrioritizedRunnable> {
+
+        private final Runnable mRunnable;
+        private final long mEnqueuedAt;
+        private final long mDeadline;
+        private final long mSequence;
+
+        private PrioritizedRunnable(Runnable runnable, long enqueuedAt, long deadline, long sequence) {
+            mRunnable = runnable;
+            mEnqueuedAt = enqueuedAt;
+            mDeadline = deadline;
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            long queueWait = System.nanoTime() - mEnqueuedAt;
+            try {
+                mRunnable.run();
+            } finally {
+                onTaskFinished(queueWait);
+            }
+        }
+
+        @Override
+        public int compareTo(PrioritizedRunnable other) {
+            long difference = mDeadline - other.mDeadline;
+            if (difference != 0) {
+                return difference < 0 ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+
+    }
+
+}
@@ -0,0 +1,417 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.BackgroundTask;
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.Priority;
+import com.raycoarana.tesela.QueueLimit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Multiplexes one serial lane per tag over a shared worker pool. Work submitted with the same
+ * tag runs in submission order, one at a time, while different tags run in parallel. When the
+ * worker pool is a {@link PriorityExecutor}, each lane is scheduled with the priority of the work
+ * at its head.
+ * <p>
+ * Lanes can be bounded by a {@link QueueLimit} given with the work, and all pending work by a
+ * global limit. Dropped {@link BackgroundTask}s are cancelled and run on the submitting thread, so
+ * they finish like any other cancelled task. The global limit can't drop the oldest work, because
+ * untagged work is already in the queue of the worker pool.
+ * <p>
+ * {@link Overflow#CALLER_RUNS} and {@link Overflow#BLOCK} run or wait on the submitting thread.
+ * Submitters that must never do so, like the UI thread, pass {@code callerMayWait} as false and
+ * have their work dropped instead.
+ */
+public class TaggedExecutor {
+
+    private final Executor mWorkerPool;
+    private final QueueLimit mGlobalLimit;
+    private final Map<String, Lane> mLanes = new HashMap<>();
+    private final AtomicInteger mPendingCount = new AtomicInteger();
+    private final AtomicInteger mGlobalWaiterCount = new AtomicInteger();
+    private final Object mGlobalSpaceLock = new Object();
+    private final AtomicLong mRejectedCount = new AtomicLong();
+    private final AtomicLong mCallerRunsCount = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> mRejectedCountByTag = new ConcurrentHashMap<>();
+    private int mLaneWaiterCount;
+
+    public TaggedExecutor(Executor workerPool) {
+        this(workerPool, null);
+    }
+
+    public TaggedExecutor(Executor workerPool, QueueLimit globalLimit) {
+        if (globalLimit != null && globalLimit.getOverflow() == Overflow.DROP_OLDEST) {
+            throw new IllegalArgumentException("The global limit can't drop the oldest work");
+        }
+        mWorkerPool = workerPool;
+        mGlobalLimit = globalLimit;
+    }
+
+    public void execute(Runnable runnable) {
+        execute(runnable, Priority.NORMAL);
+    }
+
+    public void execute(Runnable runnable, Priority priority) {
+        execute(runnable, priority, true);
+    }
+
+    public void execute(Runnable runnable, Priority priority, boolean callerMayWait) {
+        if (mGlobalLimit == null) {
+            dispatch(runnable, priority);
+        } else if (reserve(runnable, null, callerMayWait)) {
+            try {
+                dispatch(new Reserved(runnable), priority);
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+        }
+    }
+
+    public void execute(Runnable runnable, String tag) {
+        execute(runnable, tag, Priority.NORMAL);
+    }
+
+    public void execute(Runnable runnable, String tag, Priority priority) {
+        execute(runnable, tag, priority, null);
+    }
+
+    public void execute(Runnable runnable, String tag, Priority priority, QueueLimit limit) {
+        execute(runnable, tag, priority, limit, true);
+    }
+
+    public void execute(Runnable runnable, String tag, Priority priority, QueueLimit limit, boolean callerMayWait) {
+        if (!reserve(runnable, tag, callerMayWait)) {
+            return;
+        }
+
+        Lane laneToSchedule = null;
+        Runnable dropped = null;
+        boolean runOnCaller = false;
+        synchronized (mLanes) {
+            Lane lane = mLanes.get(tag);
+            if (lane != null && limit != null && lane.mPending.size() >= limit.getCapacity()) {
+                switch (getOverflow(limit, callerMayWait)) {
+                    case DROP_OLDEST:
+                        dropped = lane.mPending.poll();
+                        lane.mPendingPriorities.poll();
+                        break;
+                    case CALLER_RUNS:
+                        runOnCaller = true;
+                        break;
+                    case BLOCK:
+                        if (awaitLaneSpace(tag, limit)) {
+                            lane = mLanes.get(tag);
+                        } else {
+                            dropped = runnable;
+                        }
+                        break;
+                    default:
+                        dropped = runnable;
+                        break;
+                }
+            }
+
+            if (dropped != runnable && !runOnCaller) {
+                if (lane == null) {
+                    lane = new Lane(tag);
+                    mLanes.put(tag, lane);
+                    laneToSchedule = lane;
+                }
+                lane.mPending.add(runnable);
+                lane.mPendingPriorities.add(priority);
+            }
+        }
+
+        if (dropped != null) {
+            release();
+            reject(dropped, tag);
+        }
+        if (runOnCaller) {
+            release();
+            mCallerRunsCount.incrementAndGet();
+            runnable.run();
+        }
+        if (laneToSchedule != null) {
+            try {
+                dispatch(laneToSchedule, priority);
+            } catch (RuntimeException e) {
+                abandon(laneToSchedule, runnable);
+                throw e;
+            }
+        }
+    }
+
+    public Executor getWorkerPool() {
+        return mWorkerPool;
+    }
+
+    public int getActiveLaneCount() {
+        synchronized (mLanes) {
+            return mLanes.size();
+        }
+    }
+
+    /** Work dropped by a full queue, including work that timed out waiting for room. */
+    public long getRejectedCount() {
+        return mRejectedCount.get();
+    }
+
+    public long getRejectedCount(String tag) {
+        AtomicLong count = mRejectedCountByTag.get(tag);
+        return count != null ? count.get() : 0L;
+    }
+
+    /** Work run on the submitting thread because its queue was full. */
+    public long getCallerRunsCount() {
+        return mCallerRunsCount.get();
+    }
+
+    private static Overflow getOverflow(QueueLimit limit, boolean callerMayWait) {
+        Overflow overflow = limit.getOverflow();
+        if (!callerMayWait && (overflow == Overflow.CALLER_RUNS || overflow == Overflow.BLOCK)) {
+            return Overflow.DROP_NEWEST;
+        }
+        return overflow;
+    }
+
+    private boolean reserve(Runnable runnable, String tag, boolean callerMayWait) {
+        if (mGlobalLimit == null || tryReserve()) {
+            return true;
+        }
+
+        switch (getOverflow(mGlobalLimit, callerMayWait)) {
+            case CALLER_RUNS:
+                mCallerRunsCount.incrementAndGet();
+                runnable.run();
+                return false;
+            case BLOCK:
+                if (awaitGlobalSpace()) {
+                    return true;
+                }
+                reject(runnable, tag);
+                return false;
+            default:
+                reject(runnable, tag);
+                return false;
+        }
+    }
+
+    private boolean tryReserve() {
+        int pendingCount;
+        do {
+            pendingCount = mPendingCount.get();
+            if (pendingCount >= mGlobalLimit.getCapacity()) {
+                return false;
+            }
+        } while (!mPendingCount.compareAndSet(pendingCount, pendingCount + 1));
+        return true;
+    }
+
+    private void release() {
+        if (mGlobalLimit == null) {
+            return;
+        }
+
+        mPendingCount.decrementAndGet();
+        if (mGlobalWaiterCount.get() > 0) {
+            synchronized (mGlobalSpaceLock) {
+                mGlobalSpaceLock.notifyAll();
+            }
+        }
+    }
+
+    private boolean awaitGlobalSpace() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(mGlobalLimit.getTimeoutMs());
+        synchronized (mGlobalSpaceLock) {
+            mGlobalWaiterCount.incrementAndGet();
+            try {
+                while (!tryReserve()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(mGlobalSpaceLock, remaining);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                mGlobalWaiterCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Must be called holding the lanes lock, which is released while waiting. Waiters of every tag
+     * share it, so a lane making room wakes them all to check their own lane.
+     */
+    private boolean awaitLaneSpace(String tag, QueueLimit limit) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(limit.getTimeoutMs());
+        Lane lane;
+        while ((lane = mLanes.get(tag)) != null && lane.mPending.size() >= limit.getCapacity()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            mLaneWaiterCount++;
+            try {
+                TimeUnit.NANOSECONDS.timedWait(mLanes, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                mLaneWaiterCount--;
+            }
+        }
+        return true;
+    }
+
+    private void reject(Runnable runnable, String tag) {
+        mRejectedCount.incrementAndGet();
+        if (tag != null) {
+            AtomicLong count = mRejectedCountByTag.get(tag);
+            if (count == null) {
+                AtomicLong newCount = new AtomicLong();
+                count = mRejectedCountByTag.putIfAbsent(tag, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.incrementAndGet();
+        }
+
+        if (runnable instanceof BackgroundTask) {
+            BackgroundTask task = (BackgroundTask) runnable;
+            task.cancel();
+            task.run();
+        }
+    }
+
+    private void scheduleNext(Lane lane) {
+        Priority priority;
+        synchronized (mLanes) {
+            if (lane.mPending.isEmpty()) {
+                mLanes.remove(lane.mTag);
+                if (mLaneWaiterCount > 0) {
+                    mLanes.notifyAll();
+                }
+                return;
+            }
+            priority = lane.mPendingPriorities.peek();
+        }
+        try {
+            dispatch(lane, priority);
+        } catch (RuntimeException e) {
+            abandon(lane, null);
+        }
+    }
+
+    /**
+     * Removes a lane the worker pool refused to run, so later work with its tag starts a new one.
+     * Its pending work is rejected, except the given runnable, whose submitter gets the exception.
+     */
+    private void abandon(Lane lane, Runnable refused) {
+        List<Runnable> pending;
+        synchronized (mLanes) {
+            if (mLanes.get(lane.mTag) == lane) {
+                mLanes.remove(lane.mTag);
+            }
+            pending = new ArrayList<>(lane.mPending);
+            lane.mPending.clear();
+            lane.mPendingPriorities.clear();
+            if (mLaneWaiterCount > 0) {
+                mLanes.notifyAll();
+            }
+        }
+        for (Runnable runnable : pending) {
+            release();
+            if (runnable != refused) {
+                reject(runnable, lane.mTag);
+            }
+        }
+    }
+
+    private void dispatch(Runnable runnable, Priority priority) {
+        if (mWorkerPool instanceof PriorityExecutor) {
+            ((PriorityExecutor) mWorkerPool).execute(runnable, priority);
+        } else {
+            mWorkerPool.execute(runnable);
+        }
+    }
+
+    private final class Lane implements Runnable {
+
+        private final String mTag;
+        private final Queue<Runnable> mPending = new ArrayDeque<>();
+        private final Queue<Priority> mPendingPriorities = new ArrayDeque<>();
+
+        private Lane(String tag) {
+            mTag = tag;
+        }
+
+        @Override
+        public void run() {
+            Runnable runnable;
+            synchronized (mLanes) {
+                runnable = mPending.poll();
+                mPendingPriorities.poll();
+                if (mLaneWaiterCount > 0) {
+                    mLanes.notifyAll();
+                }
+            }
+            release();
+
+            try {
+                runnable.run();
+            } finally {
+                scheduleNext(this);
+            }
+        }
+
+    }
+
+    private final class Reserved implements Runnable {
+
+        private final Runnable mRunnable;
+
+        private Reserved(Runnable runnable) {
+            mRunnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            release();
+            mRunnable.run();
+        }
+
+    }
+
+}
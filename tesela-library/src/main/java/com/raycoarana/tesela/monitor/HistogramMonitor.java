@@ -0,0 +1,99 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.monitor;
+
+import com.raycoarana.tesela.TeselaMonitor;
+import com.raycoarana.tesela.annotations.Background;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link TeselaMonitor} keeping a queue wait and an execution time histogram per presenter
+ * method. Background calls with a tag are kept apart from the untagged ones, under
+ * "MainPresenter.loadData [tag]".
+ */
+public class HistogramMonitor implements TeselaMonitor {
+
+    private final ConcurrentMap<String, CallHistograms> mHistograms = new ConcurrentHashMap<>();
+
+    @Override
+    public void onBackgroundCallFinished(String name, String tag, long enqueuedAt, long startedAt, long finishedAt) {
+        String key = tag == null || Background.NONE.equals(tag) ? name : name + " [" + tag + "]";
+        getHistograms(key).record(startedAt - enqueuedAt, finishedAt - startedAt);
+    }
+
+    @Override
+    public void onUICallFinished(String name, long postedAt, long startedAt, long finishedAt) {
+        getHistograms(name).record(startedAt - postedAt, finishedAt - startedAt);
+    }
+
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new HashMap<>();
+        for (Map.Entry<String, CallHistograms> entry : mHistograms.entrySet()) {
+            CallHistograms histograms = entry.getValue();
+            snapshots.put(entry.getKey(), new Snapshot(histograms.mQueueWait.snapshot(), histograms.mExecution.snapshot()));
+        }
+        return snapshots;
+    }
+
+    private CallHistograms getHistograms(String key) {
+        CallHistograms histograms = mHistograms.get(key);
+        if (histograms == null) {
+            CallHistograms newHistograms = new CallHistograms();
+            histograms = mHistograms.putIfAbsent(key, newHistograms);
+            if (histograms == null) {
+                histograms = newHistograms;
+            }
+        }
+        return histograms;
+    }
+
+    private static final class CallHistograms {
+
+        private final LatencyHistogram mQueueWait = new LatencyHistogram();
+        private final LatencyHistogram mExecution = new LatencyHistogram();
+
+        private void record(long queueWait, long execution) {
+            mQueueWait.record(queueWait);
+            mExecution.record(execution);
+        }
+
+    }
+
+    public static final class Snapshot {
+
+        private final LatencyHistogram.Snapshot mQueueWait;
+        private final LatencyHistogram.Snapshot mExecution;
+
+        private Snapshot(LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution) {
+            mQueueWait = queueWait;
+            mExecution = execution;
+        }
+
+        public LatencyHistogram.Snapshot getQueueWait() {
+            return mQueueWait;
+        }
+
+        public LatencyHistogram.Snapshot getExecution() {
+            return mExecution;
+        }
+
+    }
+
+}
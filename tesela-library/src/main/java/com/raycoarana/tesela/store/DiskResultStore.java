@@ -0,0 +1,267 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.store;
+
+import com.raycoarana.tesela.ResultStore;
+import com.raycoarana.tesela.StoredResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link ResultStore} kept in a single append-only file. Stored results are appended as new
+ * records and read back through a memory mapping of the file. Once superseded records take more
+ * than half of the file, the live ones are rewritten into a fresh copy that replaces it. A record
+ * torn by a crash is dropped the next time the file is opened.
+ * <p>
+ * The file is opened and indexed on first use, which should not happen on the UI thread. I/O
+ * errors are reported to the optional {@link StoreFailureListener}.
+ */
+public class DiskResultStore implements ResultStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+
+    private final File mFile;
+    private final ResultSerializer mSerializer;
+    private final StoreFailureListener mFailureListener;
+    private final Map<String, Record> mIndex = new HashMap<>();
+
+    private RandomAccessFile mRandomAccessFile;
+    private FileChannel mChannel;
+    private MappedByteBuffer mMapping;
+    private long mSize;
+    private long mLiveSize;
+
+    public DiskResultStore(File file) {
+        this(file, new SerializableResultSerializer());
+    }
+
+    public DiskResultStore(File file, ResultSerializer serializer) {
+        this(file, serializer, null);
+    }
+
+    public DiskResultStore(File file, ResultSerializer serializer, StoreFailureListener failureListener) {
+        mFile = file;
+        mSerializer = serializer;
+        mFailureListener = failureListener;
+    }
+
+    @Override
+    public synchronized StoredResult get(String key) {
+        try {
+            open();
+            Record record = mIndex.get(key);
+            if (record == null) {
+                return null;
+            }
+            byte[] value = read(record.mOffset + HEADER_SIZE + record.mKeyLength, record.mValueLength);
+            return new StoredResult(mSerializer.deserialize(value), record.mStoredAt);
+        } catch (IOException e) {
+            if (mFailureListener != null) {
+                mFailureListener.onReadFailed(key, e);
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, Object value) {
+        try {
+            open();
+            append(key.getBytes(UTF_8), mSerializer.serialize(value), System.currentTimeMillis());
+            if (mSize > MIN_COMPACTION_SIZE && mSize > 2 * mLiveSize) {
+                compact();
+            }
+        } catch (IOException e) {
+            closeQuietly();
+            if (mFailureListener != null) {
+                mFailureListener.onWriteFailed(key, e);
+            }
+        }
+    }
+
+    public synchronized void compact() throws IOException {
+        open();
+        File compactedFile = new File(mFile.getPath() + ".compact");
+        RandomAccessFile compacted = new RandomAccessFile(compactedFile, "rw");
+        try {
+            compacted.setLength(0);
+            for (Record record : mIndex.values()) {
+                compacted.write(read(record.mOffset, record.size()));
+            }
+            compacted.getFD().sync();
+        } finally {
+            compacted.close();
+        }
+
+        closeQuietly();
+        replace(compactedFile);
+        open();
+    }
+
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    /**
+     * Moves the compacted copy over the file. Where a rename can't replace an existing file, the
+     * original is first set aside as a backup, and only deleted once the copy took its place.
+     */
+    private void replace(File compactedFile) throws IOException {
+        if (compactedFile.renameTo(mFile)) {
+            return;
+        }
+
+        File backupFile = getBackupFile();
+        if (!mFile.renameTo(backupFile)) {
+            throw new IOException("Can't replace " + mFile + " with its compacted copy");
+        }
+        if (!compactedFile.renameTo(mFile)) {
+            backupFile.renameTo(mFile);
+            throw new IOException("Can't replace " + mFile + " with its compacted copy");
+        }
+        backupFile.delete();
+    }
+
+    private File getBackupFile() {
+        return new File(mFile.getPath() + ".backup");
+    }
+
+    private void open() throws IOException {
+        if (mChannel != null) {
+            return;
+        }
+
+        File backupFile = getBackupFile();
+        if (backupFile.exists() && !mFile.exists() && !backupFile.renameTo(mFile)) {
+            throw new IOException("Can't restore " + mFile + " from its backup");
+        }
+        mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        mChannel = mRandomAccessFile.getChannel();
+        mSize = mChannel.size();
+        mLiveSize = 0;
+        long offset = 0;
+        while (offset + HEADER_SIZE <= mSize) {
+            ByteBuffer header = ByteBuffer.wrap(read(offset, HEADER_SIZE));
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            long storedAt = header.getLong();
+            if (keyLength < 0 || valueLength < 0 || offset + HEADER_SIZE + keyLength + valueLength > mSize) {
+                break;
+            }
+            String key = new String(read(offset + HEADER_SIZE, keyLength), UTF_8);
+            index(key, new Record(offset, keyLength, valueLength, storedAt));
+            offset += HEADER_SIZE + keyLength + valueLength;
+        }
+
+        if (offset < mSize) {
+            mChannel.truncate(offset);
+            mSize = offset;
+            mMapping = null;
+        }
+    }
+
+    private void append(byte[] key, byte[] value, long storedAt) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length);
+        buffer.putInt(key.length)
+                .putInt(value.length)
+                .putLong(storedAt)
+                .put(key)
+                .put(value)
+                .flip();
+        long offset = mSize;
+        while (buffer.hasRemaining()) {
+            mChannel.write(buffer, offset + buffer.position());
+        }
+        mSize += buffer.limit();
+        index(new String(key, UTF_8), new Record(offset, key.length, value.length, storedAt));
+    }
+
+    private void index(String key, Record record) {
+        Record previous = mIndex.put(key, record);
+        if (previous != null) {
+            mLiveSize -= previous.size();
+        }
+        mLiveSize += record.size();
+    }
+
+    /**
+     * Reads through the mapping, which is only remapped once the file doubled its mapped size.
+     * Records appended since then are read from the channel.
+     */
+    private byte[] read(long offset, int length) throws IOException {
+        if (mMapping == null || mSize >= 2L * mMapping.capacity()) {
+            mMapping = mChannel.map(FileChannel.MapMode.READ_ONLY, 0, mSize);
+        }
+        byte[] bytes = new byte[length];
+        if (offset + length <= mMapping.capacity()) {
+            ByteBuffer view = mMapping.duplicate();
+            view.position((int) offset);
+            view.get(bytes);
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                if (mChannel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of " + mFile);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private void closeQuietly() {
+        mIndex.clear();
+        mMapping = null;
+        mChannel = null;
+        if (mRandomAccessFile != null) {
+            try {
+                mRandomAccessFile.close();
+            } catch (IOException ignored) {
+            }
+            mRandomAccessFile = null;
+        }
+    }
+
+    private static final class Record {
+
+        private final long mOffset;
+        private final int mKeyLength;
+        private final int mValueLength;
+        private final long mStoredAt;
+
+        private Record(long offset, int keyLength, int valueLength, long storedAt) {
+            mOffset = offset;
+            mKeyLength = keyLength;
+            mValueLength = valueLength;
+            mStoredAt = storedAt;
+        }
+
+        private int size() {
+            return HEADER_SIZE + mKeyLength + mValueLength;
+        }
+
+    }
+
+}
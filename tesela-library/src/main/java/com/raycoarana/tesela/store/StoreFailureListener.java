@@ -0,0 +1,33 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.store;
+
+import java.io.IOException;
+
+/**
+ * Told about the I/O errors of a {@link DiskResultStore}, which otherwise behaves as an empty store
+ * when reads fail and drops results when writes fail. Called from the thread using the store,
+ * while holding its lock.
+ */
+public interface StoreFailureListener {
+
+    /** Reading the result of the key failed, so it was returned as missing. */
+    void onReadFailed(String key, IOException e);
+
+    /** Storing the result of the key failed and it was dropped. The file is opened again on next use. */
+    void onWriteFailed(String key, IOException e);
+
+}
@@ -0,0 +1,198 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BackgroundTaskTest {
+
+    private final TeselaExecutor mExecutor = new InlineTeselaExecutor();
+
+    @Before
+    public void setUp() {
+        Tesela.init(mExecutor);
+    }
+
+    @Test
+    public void isTheTokenOfTheCallItRuns() {
+        RecycledTask task = new RecycledTask(false);
+        task.mTakeToken = true;
+        task.submitTo(mExecutor);
+
+        assertSame(task, task.mToken);
+    }
+
+    @Test
+    public void isRecycledOnceItsCallFinishes() {
+        RecycledTask task = new RecycledTask(true);
+        task.submitTo(mExecutor);
+        task.submitTo(mExecutor);
+
+        assertEquals(2, task.mRecycledCount);
+    }
+
+    @Test
+    public void isNotRecycledWhenNotMarkedAsRecyclable() {
+        RecycledTask task = new RecycledTask(false);
+        task.submitTo(mExecutor);
+
+        assertEquals(0, task.mRecycledCount);
+    }
+
+    @Test
+    public void isNeverRecycledOnceItsTokenEscaped() {
+        RecycledTask task = new RecycledTask(true);
+        task.mTakeToken = true;
+        task.mCancel = true;
+        task.submitTo(mExecutor);
+        task.mTakeToken = false;
+        task.mCancel = false;
+        task.submitTo(mExecutor);
+
+        assertEquals(0, task.mRecycledCount);
+    }
+
+    @Test
+    public void isRecycledOnceAHeldTokenIsReleased() {
+        RecycledTask task = new RecycledTask(true);
+        task.mHoldToken = true;
+        task.mCancel = true;
+        task.submitTo(mExecutor);
+
+        assertEquals(0, task.mRecycledCount);
+        assertTrue(task.mToken.isCancelled());
+
+        BackgroundTask.releaseToken(task.mToken);
+        assertEquals(1, task.mRecycledCount);
+    }
+
+    @Test
+    public void givesNoTokenOutsideOfBackgroundWork() {
+        assertSame(CancellationToken.NONE, BackgroundTask.currentToken());
+        assertSame(CancellationToken.NONE, BackgroundTask.holdCurrentToken());
+    }
+
+    @Test
+    public void givesItsPriorityToExecutorsThatScheduleByPriority() {
+        RecordingPriorityExecutor executor = new RecordingPriorityExecutor();
+        new RecycledTask(false, "tag", Priority.HIGH).submitTo(executor);
+
+        assertEquals(Priority.HIGH, executor.mPriority);
+        assertEquals("tag", executor.mTag);
+    }
+
+    @Test
+    public void runsByTagOnExecutorsThatIgnorePriorities() {
+        RecycledTask task = new RecycledTask(false, "tag", Priority.HIGH);
+        task.mTakeToken = true;
+        task.submitTo(mExecutor);
+
+        assertSame(task, task.mToken);
+    }
+
+    @Test
+    public void givesNormalPriorityWorkByTagEvenToExecutorsThatScheduleByPriority() {
+        RecordingPriorityExecutor executor = new RecordingPriorityExecutor();
+        new RecycledTask(false, "tag", Priority.NORMAL).submitTo(executor);
+
+        assertNull(executor.mPriority);
+        assertEquals("tag", executor.mTag);
+    }
+
+    private static final class RecycledTask extends BackgroundTask {
+
+        private final boolean mRecycled;
+        private boolean mTakeToken;
+        private boolean mHoldToken;
+        private boolean mCancel;
+        private CancellationToken mToken;
+        private int mRecycledCount;
+
+        private RecycledTask(boolean recycled) {
+            this(recycled, "none", Priority.NORMAL);
+        }
+
+        private RecycledTask(boolean recycled, String tag, Priority priority) {
+            super(new Object(), "Test.run", tag, priority);
+            mRecycled = recycled;
+        }
+
+        @Override
+        protected void doInBackground() {
+            if (mTakeToken) {
+                mToken = BackgroundTask.currentToken();
+            } else if (mHoldToken) {
+                mToken = BackgroundTask.holdCurrentToken();
+            }
+            if (mCancel) {
+                cancel();
+            }
+        }
+
+        @Override
+        protected boolean isRecycled() {
+            return mRecycled;
+        }
+
+        @Override
+        protected void onRecycled() {
+            mRecycledCount++;
+        }
+
+    }
+
+    private static final class RecordingPriorityExecutor implements PriorityTeselaExecutor {
+
+        private String mTag;
+        private Priority mPriority;
+
+        @Override
+        public boolean isMainCurrentThread() {
+            return true;
+        }
+
+        @Override
+        public void executeInUIThread(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void executeInBackground(Runnable runnable) {
+            runnable.run();
+        }
+
+        @Override
+        public void executeInBackground(Runnable runnable, String tag) {
+            mTag = tag;
+            runnable.run();
+        }
+
+        @Override
+        public void executeInBackground(Runnable runnable, String tag, Priority priority) {
+            mTag = tag;
+            mPriority = priority;
+            runnable.run();
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BatcherTest {
+
+    @Test
+    public void dispatchesAFullBatchFromTheCallingThread() {
+        RecordingBatcher batcher = new RecordingBatcher(3, 10000);
+        batcher.add(1);
+        batcher.add(2);
+        assertNull(batcher.mBatches.peek());
+        batcher.add(3);
+
+        assertEquals(Arrays.asList(1, 2, 3), batcher.mBatches.poll());
+    }
+
+    @Test
+    public void dispatchesAnExpiredBatch() throws Exception {
+        RecordingBatcher batcher = new RecordingBatcher(100, 30);
+        batcher.add(1);
+        batcher.add(2);
+
+        assertEquals(Arrays.asList(1, 2), batcher.mBatches.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void doesNotExpireTheBatchStartedAfterAFullOne() throws Exception {
+        RecordingBatcher batcher = new RecordingBatcher(2, 100);
+        batcher.add(1);
+        batcher.add(2);
+        batcher.mBatches.poll();
+        Thread.sleep(60);
+        batcher.add(3);
+
+        assertNull(batcher.mBatches.poll(70, TimeUnit.MILLISECONDS));
+        assertEquals(Arrays.asList(3), batcher.mBatches.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void flushesTheItemsCollectedSoFar() {
+        RecordingBatcher batcher = new RecordingBatcher(100, 10000);
+        batcher.flush();
+        assertNull(batcher.mBatches.peek());
+        batcher.add(1);
+        batcher.flush();
+
+        assertEquals(Arrays.asList(1), batcher.mBatches.poll());
+    }
+
+    private static final class RecordingBatcher extends Batcher<Integer> {
+
+        private final BlockingQueue<List<Integer>> mBatches = new LinkedBlockingQueue<>();
+
+        private RecordingBatcher(int maxSize, long maxDelayMs) {
+            super(maxSize, maxDelayMs);
+        }
+
+        @Override
+        protected void dispatch(List<Integer> batch) {
+            mBatches.add(batch);
+        }
+
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Keeps background work queued until the test runs it, UI work runs inline. */
+public class QueueingTeselaExecutor implements TeselaExecutor {
+
+    private final List<Runnable> mPending = new ArrayList<>();
+
+    @Override
+    public boolean isMainCurrentThread() {
+        return true;
+    }
+
+    @Override
+    public void executeInUIThread(Runnable runnable) {
+        runnable.run();
+    }
+
+    @Override
+    public synchronized void executeInBackground(Runnable runnable) {
+        mPending.add(runnable);
+    }
+
+    @Override
+    public void executeInBackground(Runnable runnable, String tag) {
+        executeInBackground(runnable);
+    }
+
+    public void runPending() {
+        List<Runnable> pending;
+        synchronized (this) {
+            pending = new ArrayList<>(mPending);
+            mPending.clear();
+        }
+        for (Runnable runnable : pending) {
+            runnable.run();
+        }
+    }
+
+}
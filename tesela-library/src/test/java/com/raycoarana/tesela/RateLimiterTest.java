@@ -0,0 +1,125 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTest {
+
+    @Test
+    public void debouncerRunsOnlyTheLastCallOfABurst() throws Exception {
+        RecordingDebouncer debouncer = new RecordingDebouncer(50);
+        debouncer.offer(new Object[]{1});
+        debouncer.offer(new Object[]{2});
+        debouncer.offer(new Object[]{3});
+
+        assertEquals(3, debouncer.mDispatched.poll(5, TimeUnit.SECONDS)[0]);
+        assertNull(debouncer.mDispatched.poll(150, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void debouncerWaitsForTheIntervalAfterTheLastCall() throws Exception {
+        RecordingDebouncer debouncer = new RecordingDebouncer(100);
+        long start = System.nanoTime();
+        debouncer.offer(new Object[]{1});
+        Thread.sleep(60);
+        debouncer.offer(new Object[]{2});
+
+        assertEquals(2, debouncer.mDispatched.poll(5, TimeUnit.SECONDS)[0]);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(160));
+    }
+
+    @Test
+    public void debouncerRunsCallsSeparatedByMoreThanTheInterval() throws Exception {
+        RecordingDebouncer debouncer = new RecordingDebouncer(20);
+        debouncer.offer(new Object[]{1});
+        assertEquals(1, debouncer.mDispatched.poll(5, TimeUnit.SECONDS)[0]);
+        debouncer.offer(new Object[]{2});
+
+        assertEquals(2, debouncer.mDispatched.poll(5, TimeUnit.SECONDS)[0]);
+    }
+
+    @Test
+    public void throttlerRunsTheFirstCallRightAway() {
+        RecordingThrottler throttler = new RecordingThrottler(1000);
+        throttler.offer(new Object[]{1});
+
+        assertEquals(1, throttler.mDispatched.poll()[0]);
+    }
+
+    @Test
+    public void throttlerFoldsCallsMadeWhileTheWindowIsOpen() throws Exception {
+        RecordingThrottler throttler = new RecordingThrottler(100);
+        throttler.offer(new Object[]{1});
+        throttler.offer(new Object[]{2});
+        throttler.offer(new Object[]{3});
+
+        assertEquals(1, throttler.mDispatched.poll()[0]);
+        assertNull(throttler.mDispatched.poll(50, TimeUnit.MILLISECONDS));
+        assertEquals(3, throttler.mDispatched.poll(5, TimeUnit.SECONDS)[0]);
+        assertNull(throttler.mDispatched.poll(250, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void throttlerRunsRightAwayOnceAQuietWindowCloses() throws Exception {
+        RecordingThrottler throttler = new RecordingThrottler(20);
+        throttler.offer(new Object[]{1});
+        Thread.sleep(100);
+        throttler.offer(new Object[]{2});
+
+        assertEquals(1, throttler.mDispatched.poll()[0]);
+        assertEquals(2, throttler.mDispatched.poll()[0]);
+    }
+
+    private static final class RecordingDebouncer extends Debouncer {
+
+        private final BlockingQueue<Object[]> mDispatched = new LinkedBlockingQueue<>();
+
+        private RecordingDebouncer(long intervalMs) {
+            super(intervalMs);
+        }
+
+        @Override
+        protected void dispatch(Object[] arguments) {
+            mDispatched.add(arguments);
+        }
+
+    }
+
+    private static final class RecordingThrottler extends Throttler {
+
+        private final BlockingQueue<Object[]> mDispatched = new LinkedBlockingQueue<>();
+
+        private RecordingThrottler(long intervalMs) {
+            super(intervalMs);
+        }
+
+        @Override
+        protected void dispatch(Object[] arguments) {
+            mDispatched.add(arguments);
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResultCacheTest {
+
+    @Test
+    public void returnsCachedResultsByKey() {
+        ResultCache<String> cache = new ResultCache<>(0, 16);
+        cache.put(SingleFlight.key(new Object[]{"a"}), "A");
+
+        assertEquals("A", cache.get(SingleFlight.key(new Object[]{"a"})));
+        assertNull(cache.get(SingleFlight.key(new Object[]{"b"})));
+    }
+
+    @Test
+    public void neverCachesNullResults() {
+        ResultCache<String> cache = new ResultCache<>(0, 16);
+        cache.put("a", "A");
+        cache.put("a", null);
+
+        assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedResultOnceFull() {
+        ResultCache<String> cache = new ResultCache<>(0, 2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void dropsResultsOlderThanTheirTimeToLive() throws Exception {
+        ResultCache<String> cache = new ResultCache<>(20, 16);
+        cache.put("a", "A");
+        assertEquals("A", cache.get("a"));
+
+        Thread.sleep(50);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void isEmptiedByClearCaches() {
+        ResultCache<String> cache = new ResultCache<>(0, 16);
+        cache.put("a", "A");
+        Tesela.clearCaches();
+
+        assertNull(cache.get("a"));
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<Object> mSingleFlight = new SingleFlight<>();
+
+    @Test
+    public void joinsTheCallInFlightWithEqualArguments() {
+        Object call = new Object();
+        assertNull(mSingleFlight.join(SingleFlight.key(new Object[]{"a", 1}), call));
+
+        assertSame(call, mSingleFlight.join(SingleFlight.key(new Object[]{"a", 1}), new Object()));
+    }
+
+    @Test
+    public void runsCallsWithOtherArguments() {
+        mSingleFlight.join(SingleFlight.key(new Object[]{"a", 1}), new Object());
+
+        assertNull(mSingleFlight.join(SingleFlight.key(new Object[]{"a", 2}), new Object()));
+    }
+
+    @Test
+    public void runsAgainOnceTheCallLeaves() {
+        Object key = SingleFlight.key(new Object[]{"a"});
+        Object call = new Object();
+        mSingleFlight.join(key, call);
+        mSingleFlight.leave(key, call);
+
+        assertNull(mSingleFlight.join(key, new Object()));
+    }
+
+    @Test
+    public void ignoresLeavesOfCallsThatWereReplaced() {
+        Object key = SingleFlight.key(new Object[]{"a"});
+        TeselaFuture<String> done = TeselaFuture.completed("a");
+        mSingleFlight.join(key, done);
+        Object call = new Object();
+        mSingleFlight.join(key, call);
+        mSingleFlight.leave(key, done);
+
+        assertSame(call, mSingleFlight.join(key, new Object()));
+    }
+
+    @Test
+    public void replacesCompletedFutures() {
+        Object key = SingleFlight.key(new Object[]{"a"});
+        mSingleFlight.join(key, TeselaFuture.completed("a"));
+
+        assertNull(mSingleFlight.join(key, new TeselaFuture<String>()));
+    }
+
+    @Test
+    public void replacesCancelledCalls() {
+        Object key = SingleFlight.key(new Object[]{"a"});
+        BackgroundTask task = new BackgroundTask(new Object(), "Test.run", "none") {
+            @Override
+            protected void doInBackground() {
+            }
+        };
+        QueueingTeselaExecutor executor = new QueueingTeselaExecutor();
+        Tesela.init(executor);
+        task.submitTo(executor);
+        mSingleFlight.join(key, task);
+        task.cancel();
+
+        assertNull(mSingleFlight.join(key, new Object()));
+    }
+
+}
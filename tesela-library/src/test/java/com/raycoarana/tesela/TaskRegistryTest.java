@@ -0,0 +1,178 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaskRegistryTest {
+
+    private final QueueingTeselaExecutor mExecutor = new QueueingTeselaExecutor();
+    private final List<String> mEvents = Collections.synchronizedList(new ArrayList<String>());
+    private final Object mPresenter = new Object();
+    private final Object mOtherPresenter = new Object();
+
+    @Before
+    public void setUp() {
+        Tesela.init(mExecutor);
+    }
+
+    @Test
+    public void skipsPendingWorkOfACancelledTag() {
+        RecordingTask sync = submit(mPresenter, "sync", "sync");
+        submit(mPresenter, "load", "load");
+
+        Tesela.cancelTag("sync");
+        mExecutor.runPending();
+
+        assertTrue(sync.isCancelled());
+        assertEquals(asList("finished:sync", "run:load", "finished:load"), mEvents);
+    }
+
+    @Test
+    public void skipsPendingWorkOfACancelledPresenter() {
+        submit(mPresenter, "first", "tag");
+        submit(mOtherPresenter, "other", "tag");
+
+        Tesela.cancelPresenter(mPresenter);
+        mExecutor.runPending();
+
+        assertEquals(asList("finished:first", "run:other", "finished:other"), mEvents);
+    }
+
+    @Test
+    public void stopsTrackingFinishedWork() {
+        RecordingTask task = submit(mPresenter, "done", "tag");
+        mExecutor.runPending();
+
+        Tesela.cancelPresenter(mPresenter);
+
+        assertFalse(task.isCancelled());
+    }
+
+    @Test
+    public void interruptsRunningWork() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        BackgroundTask task = new BackgroundTask(mPresenter, "Test.block", "tag") {
+            @Override
+            protected void doInBackground() {
+                started.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    if (BackgroundTask.currentToken().isCancelled()) {
+                        interrupted.countDown();
+                    }
+                }
+            }
+        };
+        task.submitTo(mExecutor);
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                mExecutor.runPending();
+            }
+        });
+        worker.start();
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Tesela.cancelPresenter(mPresenter);
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        worker.join(5000);
+        assertFalse(worker.isInterrupted());
+    }
+
+    @Test
+    public void cancelsOnlyWorkWithoutALiveConsumer() {
+        RecordingTask orphan = submit(mPresenter, "orphan", "tag");
+        orphan.mLiveConsumer = false;
+        RecordingTask live = submit(mPresenter, "live", "tag");
+
+        Tesela.cancelTasksWithoutLiveConsumer();
+
+        assertTrue(orphan.isCancelled());
+        assertFalse(live.isCancelled());
+    }
+
+    @Test
+    public void tracksWorkOfManyPresentersSeparately() {
+        List<RecordingTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            tasks.add(submit(new Object(), "task" + i, i % 2 == 0 ? "even" : "odd"));
+        }
+
+        Tesela.cancelPresenter(tasks.get(1).getOwner());
+        Tesela.cancelTag("even");
+
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(i == 1 || i % 2 == 0, tasks.get(i).isCancelled());
+        }
+        mExecutor.runPending();
+        Tesela.cancelTag("odd");
+        assertFalse(tasks.get(3).isCancelled());
+    }
+
+    private RecordingTask submit(Object owner, String name, String tag) {
+        RecordingTask task = new RecordingTask(owner, name, tag);
+        task.submitTo(mExecutor);
+        return task;
+    }
+
+    private static List<String> asList(String... values) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private final class RecordingTask extends BackgroundTask {
+
+        private final String mLabel;
+        private volatile boolean mLiveConsumer = true;
+
+        private RecordingTask(Object owner, String label, String tag) {
+            super(owner, "Test." + label, tag);
+            mLabel = label;
+        }
+
+        @Override
+        protected void doInBackground() {
+            mEvents.add("run:" + mLabel);
+        }
+
+        @Override
+        protected void onFinished() {
+            mEvents.add("finished:" + mLabel);
+        }
+
+        @Override
+        protected boolean hasLiveConsumer() {
+            return mLiveConsumer;
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TeselaFutureTest {
+
+    @Test
+    public void tellsCallbacksOfTheValueOnceCompleted() {
+        TeselaFuture<String> future = new TeselaFuture<>();
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+
+        assertTrue(callback.mEvents.isEmpty());
+        future.complete("value");
+        future.complete("other");
+        assertEquals(Arrays.asList("success:value"), callback.mEvents);
+    }
+
+    @Test
+    public void tellsCallbacksOfTheError() {
+        TeselaFuture<String> future = new TeselaFuture<>();
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+
+        future.completeExceptionally(new IllegalStateException("broken"));
+        assertEquals(Arrays.asList("failure:broken"), callback.mEvents);
+    }
+
+    @Test
+    public void tellsCallbacksOfTheCancellation() {
+        TeselaFuture<String> future = new TeselaFuture<>();
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback);
+
+        future.cancel(false);
+        assertEquals(1, callback.mEvents.size());
+        assertTrue(callback.mError instanceof CancellationException);
+    }
+
+    @Test
+    public void runsCallbacksAddedOnceDoneRightAway() {
+        RecordingCallback callback = new RecordingCallback();
+        TeselaFuture.completed("value").addCallback(callback);
+        TeselaFuture.<String>failed(new IllegalStateException("broken")).addCallback(callback);
+
+        assertEquals(Arrays.asList("success:value", "failure:broken"), callback.mEvents);
+    }
+
+    @Test
+    public void tellsEveryCallback() {
+        TeselaFuture<String> future = new TeselaFuture<>();
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        future.addCallback(first);
+        future.addCallback(second);
+
+        future.complete("value");
+        assertEquals(Arrays.asList("success:value"), first.mEvents);
+        assertEquals(Arrays.asList("success:value"), second.mEvents);
+    }
+
+    private static final class RecordingCallback implements TeselaFuture.Callback<Object> {
+
+        private final List<String> mEvents = new ArrayList<>();
+        private Throwable mError;
+
+        @Override
+        public void onSuccess(Object value) {
+            mEvents.add("success:" + value);
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            mError = error;
+            mEvents.add("failure:" + error.getMessage());
+        }
+
+    }
+
+}
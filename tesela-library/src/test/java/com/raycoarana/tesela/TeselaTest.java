@@ -0,0 +1,74 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TeselaTest {
+
+    @After
+    public void tearDown() {
+        Tesela.setResultStore(null);
+    }
+
+    @Test
+    public void keepsTheResultStoreWhenInitializedAgain() {
+        Tesela.init(new InlineTeselaExecutor());
+        ResultStore store = new EmptyResultStore();
+        Tesela.setResultStore(store);
+
+        Tesela.init(new InlineTeselaExecutor());
+
+        assertSame(store, Tesela.getResultStore());
+    }
+
+    @Test
+    public void cancelsWorkSubmittedBeforeInitializingAgain() {
+        QueueingTeselaExecutor executor = new QueueingTeselaExecutor();
+        Tesela.init(executor);
+        Object presenter = new Object();
+        BackgroundTask task = new BackgroundTask(presenter, "Test.pending", "tag") {
+            @Override
+            protected void doInBackground() {
+            }
+        };
+        task.submitTo(executor);
+
+        Tesela.init(new InlineTeselaExecutor());
+        Tesela.cancelPresenter(presenter);
+
+        assertTrue(task.isCancelled());
+        executor.runPending();
+    }
+
+    private static final class EmptyResultStore implements ResultStore {
+
+        @Override
+        public StoredResult get(String key) {
+            return null;
+        }
+
+        @Override
+        public void put(String key, Object value) {
+        }
+
+    }
+
+}
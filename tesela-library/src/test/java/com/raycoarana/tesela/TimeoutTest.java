@@ -0,0 +1,156 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeoutTest {
+
+    private final TeselaExecutor mExecutor = new InlineTeselaExecutor();
+
+    @Before
+    public void setUp() {
+        Tesela.init(mExecutor);
+    }
+
+    @Test
+    public void interruptsAndCancelsWorkRunningPastItsTimeout() throws Exception {
+        TimedTask task = new TimedTask(50) {
+            @Override
+            protected void doInBackground() {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    mInterrupted = BackgroundTask.currentToken().isCancelled();
+                }
+            }
+        };
+        task.submitTo(mExecutor);
+
+        assertTrue(task.mInterrupted);
+        assertTrue(task.mTimeouts.await(5, TimeUnit.SECONDS));
+        assertEquals(1, Tesela.getTimedOutCount());
+        assertEquals(0, Tesela.getStuckCount());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void leavesWorkThatFinishesInTimeAlone() throws Exception {
+        TimedTask task = new TimedTask(5000) {
+            @Override
+            protected void doInBackground() {
+            }
+        };
+        task.submitTo(mExecutor);
+        Thread.sleep(50);
+
+        assertFalse(task.isCancelled());
+        assertEquals(1, task.mTimeouts.getCount());
+        assertEquals(0, Tesela.getTimedOutCount());
+    }
+
+    @Test
+    public void countsWorkIgnoringTheInterruptionAsStuckUntilItReturns() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TimedTask task = new TimedTask(50) {
+            @Override
+            protected void doInBackground() {
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        };
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                task.submitTo(mExecutor);
+            }
+        });
+        worker.start();
+
+        assertTrue(task.mTimeouts.await(5, TimeUnit.SECONDS));
+        assertEquals(1, Tesela.getStuckCount());
+        release.countDown();
+        worker.join(5000);
+        assertEquals(0, Tesela.getStuckCount());
+        assertEquals(1, Tesela.getTimedOutCount());
+    }
+
+    @Test
+    public void keepsCountingStuckWorkInTheInstanceItTimedOutIn() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final TimedTask task = new TimedTask(50) {
+            @Override
+            protected void doInBackground() {
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }
+        };
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                task.submitTo(mExecutor);
+            }
+        });
+        worker.start();
+
+        assertTrue(task.mTimeouts.await(5, TimeUnit.SECONDS));
+        Tesela.init(mExecutor);
+        release.countDown();
+        worker.join(5000);
+        assertEquals(0, Tesela.getStuckCount());
+        assertEquals(0, Tesela.getTimedOutCount());
+    }
+
+    private abstract static class TimedTask extends BackgroundTask {
+
+        private final long mTimeoutMs;
+        final CountDownLatch mTimeouts = new CountDownLatch(1);
+        volatile boolean mInterrupted;
+
+        TimedTask(long timeoutMs) {
+            super(new Object(), "Test.timed", "none");
+            mTimeoutMs = timeoutMs;
+        }
+
+        @Override
+        protected long getTimeoutMs() {
+            return mTimeoutMs;
+        }
+
+        @Override
+        protected void onTimeout() {
+            mTimeouts.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveExecutorTest {
+
+    private static final long SAMPLE_INTERVAL_MS = 100;
+    private static final long QUEUE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final FakeClock mClock = new FakeClock();
+    private AdaptiveExecutor mExecutor;
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void growsWhileAddingThreadsRaisesThroughput() {
+        mExecutor = newExecutor(1, 8);
+        for (int i = 0; i < 20; i++) {
+            runSample(mExecutor.getThreadCount() * 100, QUEUE_WAIT_NANOS);
+        }
+
+        assertEquals(8, mExecutor.getThreadCount());
+    }
+
+    @Test
+    public void shrinksToItsMinimumWhileWorkDoesNotWait() {
+        mExecutor = newExecutor(2, 8);
+        for (int i = 0; i < 10; i++) {
+            runSample(mExecutor.getThreadCount() * 100, QUEUE_WAIT_NANOS);
+        }
+        for (int i = 0; i < 10; i++) {
+            runSample(100, 0);
+        }
+
+        assertEquals(2, mExecutor.getThreadCount());
+        assertEquals(AdaptiveExecutor.Reason.NO_QUEUE_WAIT, lastDecision().getReason());
+    }
+
+    @Test
+    public void takesBackAThreadThatMadeNoDifference() {
+        mExecutor = newExecutor(1, 8);
+        runSample(saturatedThroughput(), QUEUE_WAIT_NANOS);
+        runSample(saturatedThroughput(), QUEUE_WAIT_NANOS);
+        runSample(saturatedThroughput(), QUEUE_WAIT_NANOS);
+
+        assertEquals(AdaptiveExecutor.Reason.THROUGHPUT_FLAT, lastDecision().getReason());
+        assertEquals(lastDecision().getPreviousThreadCount() - 1, mExecutor.getThreadCount());
+    }
+
+    @Test
+    public void stopsResizingOnceThroughputNoLongerChanges() {
+        mExecutor = newExecutor(1, 8);
+        for (int i = 0; i < 100; i++) {
+            runSample(saturatedThroughput(), QUEUE_WAIT_NANOS);
+        }
+
+        int changes = 0;
+        int threadCount = mExecutor.getThreadCount();
+        for (int i = 0; i < 100; i++) {
+            runSample(saturatedThroughput(), QUEUE_WAIT_NANOS);
+            if (mExecutor.getThreadCount() != threadCount) {
+                changes++;
+                threadCount = mExecutor.getThreadCount();
+            }
+        }
+
+        // Only the probes spaced by the longest hold, each one taken back
+        assertTrue("Resized " + changes + " times", changes <= 4);
+        assertEquals(3, mExecutor.getThreadCount());
+    }
+
+    @Test
+    public void holdsLongerAfterEveryFruitlessProbe() {
+        mExecutor = newExecutor(1, 8);
+        int lastProbe = -1;
+        int lastGap = 0;
+        int probes = 0;
+        for (int i = 0; i < 200; i++) {
+            int threadCount = mExecutor.getThreadCount();
+            runSample(saturatedThroughput(), QUEUE_WAIT_NANOS);
+            if (mExecutor.getThreadCount() > threadCount
+                    && lastDecision().getReason() == AdaptiveExecutor.Reason.PROBE) {
+                if (lastProbe >= 0) {
+                    int gap = i - lastProbe;
+                    assertTrue("Probe gap " + gap + " after " + lastGap, gap >= lastGap);
+                    lastGap = gap;
+                }
+                lastProbe = i;
+                probes++;
+            }
+        }
+
+        assertTrue(probes >= 3);
+        assertTrue(lastGap > 16);
+    }
+
+    private AdaptiveExecutor newExecutor(int minThreads, int maxThreads) {
+        return new AdaptiveExecutor(minThreads, maxThreads, SAMPLE_INTERVAL_MS, new WorkerThreadFactory("test-adaptive"),
+                mClock);
+    }
+
+    /** Tasks finished per sample by a workload that only two threads can make progress on. */
+    private int saturatedThroughput() {
+        return Math.min(mExecutor.getThreadCount(), 2) * 100;
+    }
+
+    /** Reports the given number of finished tasks over one sample interval, the last one when it ends. */
+    private void runSample(int finishedCount, long queueWaitNanos) {
+        for (int i = 0; i < finishedCount - 1; i++) {
+            mExecutor.onTaskFinished(queueWaitNanos);
+        }
+        mClock.mNow += TimeUnit.MILLISECONDS.toNanos(SAMPLE_INTERVAL_MS);
+        mExecutor.onTaskFinished(queueWaitNanos);
+    }
+
+    private AdaptiveExecutor.Decision lastDecision() {
+        List<AdaptiveExecutor.Decision> decisions = mExecutor.getStats().getDecisions();
+        return decisions.get(decisions.size() - 1);
+    }
+
+    private static final class FakeClock implements AdaptiveExecutor.Clock {
+
+        private long mNow = 1000L;
+
+        @Override
+        public long nanoTime() {
+            return mNow;
+        }
+
+    }
+
+}
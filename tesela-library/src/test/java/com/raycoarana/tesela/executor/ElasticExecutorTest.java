@@ -0,0 +1,123 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ElasticExecutorTest {
+
+    private ElasticExecutor mExecutor;
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void startsAThreadWhileEveryThreadIsBusy() throws Exception {
+        mExecutor = new ElasticExecutor(4, 30000, new WorkerThreadFactory("test-io"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            mExecutor.execute(new Blocking(started, release));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(3, mExecutor.getPoolSize());
+        release.countDown();
+    }
+
+    @Test
+    public void reusesIdleThreads() throws Exception {
+        mExecutor = new ElasticExecutor(4, 30000, new WorkerThreadFactory("test-io"));
+        for (int i = 0; i < 3; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            mExecutor.execute(new Blocking(done, new CountDownLatch(0)));
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            waitForNoActiveThreads();
+        }
+
+        assertEquals(1, mExecutor.getPoolSize());
+    }
+
+    @Test
+    public void queuesWorkOnceItReachesItsMaximum() throws Exception {
+        mExecutor = new ElasticExecutor(2, 30000, new WorkerThreadFactory("test-io"));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch queuedStarted = new CountDownLatch(1);
+        mExecutor.execute(new Blocking(started, release));
+        mExecutor.execute(new Blocking(started, release));
+        mExecutor.execute(new Blocking(queuedStarted, release));
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(2, mExecutor.getPoolSize());
+        assertEquals(1, mExecutor.getQueue().size());
+        release.countDown();
+        assertTrue(queuedStarted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stopsThreadsIdleForLongerThanTheKeepAlive() throws Exception {
+        mExecutor = new ElasticExecutor(4, 50, new WorkerThreadFactory("test-io"));
+        CountDownLatch done = new CountDownLatch(2);
+        mExecutor.execute(new Blocking(done, new CountDownLatch(0)));
+        mExecutor.execute(new Blocking(done, new CountDownLatch(0)));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mExecutor.getPoolSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, mExecutor.getPoolSize());
+    }
+
+    private void waitForNoActiveThreads() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mExecutor.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static final class Blocking implements Runnable {
+
+        private final CountDownLatch mStarted;
+        private final CountDownLatch mRelease;
+
+        private Blocking(CountDownLatch started, CountDownLatch release) {
+            mStarted = started;
+            mRelease = release;
+        }
+
+        @Override
+        public void run() {
+            mStarted.countDown();
+            try {
+                mRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        }
+
+    }
+
+}
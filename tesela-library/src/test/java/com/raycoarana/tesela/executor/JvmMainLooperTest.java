@@ -0,0 +1,207 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JvmMainLooperTest {
+
+    private final List<String> mRan = Collections.synchronizedList(new ArrayList<String>());
+    private JvmMainLooper mLooper;
+    private volatile Thread mLooperThread;
+
+    @After
+    public void tearDown() {
+        mLooper.quit();
+    }
+
+    @Test
+    public void runsMessagesInOrderOnItsThread() throws Exception {
+        mLooper = new JvmMainLooper();
+        final CountDownLatch done = new CountDownLatch(1);
+        mLooper.post(new Record("a"));
+        mLooper.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mLooper.isCurrentThread() && JvmMainLooper.myLooper() == mLooper) {
+                    mRan.add("b");
+                }
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(asList("a", "b"), mRan);
+        assertFalse(mLooper.isCurrentThread());
+    }
+
+    @Test
+    public void reportsExceptionsToItsHandlerAndKeepsLooping() throws Exception {
+        final AtomicReference<Throwable> reported = new AtomicReference<>();
+        final AtomicReference<Thread> reportedThread = new AtomicReference<>();
+        mLooper = new JvmMainLooper(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                reportedThread.set(thread);
+                reported.set(throwable);
+            }
+        });
+        final IllegalStateException failure = new IllegalStateException("Failed");
+        mLooper.post(new Runnable() {
+            @Override
+            public void run() {
+                throw failure;
+            }
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        mLooper.post(new Done(done));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(failure, reported.get());
+        assertEquals("main", reportedThread.get().getName());
+    }
+
+    @Test
+    public void endsItsThreadOnAnExceptionWithoutAHandler() throws Exception {
+        final CountDownLatch crashed = new CountDownLatch(1);
+        final AtomicReference<Thread> looperThread = new AtomicReference<>();
+        Thread.UncaughtExceptionHandler defaultHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread thread, Throwable throwable) {
+                crashed.countDown();
+            }
+        });
+        try {
+            mLooper = new JvmMainLooper();
+            mLooper.post(new Runnable() {
+                @Override
+                public void run() {
+                    looperThread.set(Thread.currentThread());
+                    throw new IllegalStateException("Failed");
+                }
+            });
+            mLooper.post(new Record("after"));
+
+            assertTrue(crashed.await(5, TimeUnit.SECONDS));
+            looperThread.get().join(5000);
+            assertFalse(looperThread.get().isAlive());
+            assertTrue(mRan.isEmpty());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(defaultHandler);
+        }
+    }
+
+    @Test
+    public void runsTheQueuedMessagesBeforeQuittingSafely() throws Exception {
+        mLooper = new JvmMainLooper();
+        CountDownLatch release = blockLooper();
+        mLooper.post(new Record("queued"));
+        mLooper.quitSafely();
+        mLooper.post(new Record("late"));
+
+        release.countDown();
+        waitForLooperToEnd();
+        assertEquals(asList("queued"), mRan);
+    }
+
+    @Test
+    public void dropsTheQueuedMessagesWhenQuitting() throws Exception {
+        mLooper = new JvmMainLooper();
+        CountDownLatch release = blockLooper();
+        mLooper.post(new Record("queued"));
+        mLooper.quit();
+
+        release.countDown();
+        waitForLooperToEnd();
+        assertTrue(mRan.isEmpty());
+    }
+
+    /** Keeps the looper busy, ignoring interruption, until the returned latch is counted down. */
+    private CountDownLatch blockLooper() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        mLooper.post(new Runnable() {
+            @Override
+            public void run() {
+                mLooperThread = Thread.currentThread();
+                blocked.countDown();
+                boolean interrupted = false;
+                while (release.getCount() > 0) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private void waitForLooperToEnd() throws InterruptedException {
+        mLooperThread.join(5000);
+        assertFalse(mLooperThread.isAlive());
+    }
+
+    private final class Record implements Runnable {
+
+        private final String mValue;
+
+        private Record(String value) {
+            mValue = value;
+        }
+
+        @Override
+        public void run() {
+            mRan.add(mValue);
+        }
+
+    }
+
+    private static final class Done implements Runnable {
+
+        private final CountDownLatch mDone;
+
+        private Done(CountDownLatch done) {
+            mDone = done;
+        }
+
+        @Override
+        public void run() {
+            mDone.countDown();
+        }
+
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MainThreadDispatcherTest {
+
+    private ManualLooper mLooper;
+    private List<Integer> mRan;
+
+    @Before
+    public void setUp() {
+        mLooper = new ManualLooper();
+        mRan = new ArrayList<>();
+    }
+
+    @Test
+    public void postsASingleDrainForABurstOfWork() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(mLooper);
+        for (int i = 0; i < 10; i++) {
+            dispatcher.execute(new Record(i));
+        }
+
+        assertEquals(1, mLooper.mMessages.size());
+        mLooper.runNext();
+        assertEquals(10, mRan.size());
+        assertEquals(0, mLooper.mMessages.size());
+    }
+
+    @Test
+    public void runsWorkInTheOrderItWasQueued() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(mLooper, 3);
+        for (int i = 0; i < 10; i++) {
+            dispatcher.execute(new Record(i));
+        }
+
+        mLooper.runAll();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (int) mRan.get(i));
+        }
+    }
+
+    @Test
+    public void postsItselfAgainAfterRunningItsBudget() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(mLooper, 4);
+        for (int i = 0; i < 10; i++) {
+            dispatcher.execute(new Record(i));
+        }
+        Runnable other = new Record(-1);
+        mLooper.post(other);
+
+        mLooper.runNext();
+        assertEquals(4, mRan.size());
+        // The looper's own message runs before the rest of the queue
+        mLooper.runNext();
+        assertEquals(-1, (int) mRan.get(4));
+        mLooper.runAll();
+        assertEquals(11, mRan.size());
+    }
+
+    @Test
+    public void postsADrainForWorkQueuedAfterTheLastOneFinished() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(mLooper);
+        dispatcher.execute(new Record(0));
+        mLooper.runAll();
+
+        dispatcher.execute(new Record(1));
+        assertEquals(1, mLooper.mMessages.size());
+        mLooper.runAll();
+        assertEquals(2, mRan.size());
+    }
+
+    @Test
+    public void runsWorkQueuedWhileDrainingInTheSameDrain() {
+        final MainThreadDispatcher dispatcher = new MainThreadDispatcher(mLooper);
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                dispatcher.execute(new Record(1));
+            }
+        });
+
+        mLooper.runNext();
+        assertEquals(1, mRan.size());
+        assertEquals(0, mLooper.mMessages.size());
+    }
+
+    @Test
+    public void keepsDrainingAfterWorkThrows() {
+        MainThreadDispatcher dispatcher = new MainThreadDispatcher(mLooper);
+        dispatcher.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Failed");
+            }
+        });
+        dispatcher.execute(new Record(1));
+
+        try {
+            mLooper.runNext();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(1, mLooper.mMessages.size());
+        mLooper.runAll();
+        assertEquals(1, mRan.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositiveBudget() {
+        new MainThreadDispatcher(mLooper, 0);
+    }
+
+    private final class Record implements Runnable {
+
+        private final int mValue;
+
+        private Record(int value) {
+            mValue = value;
+        }
+
+        @Override
+        public void run() {
+            mRan.add(mValue);
+        }
+
+    }
+
+    /**
+     * Keeps posted messages until the test runs them, on the test thread.
+     */
+    private static final class ManualLooper implements MainLooper {
+
+        private final Queue<Runnable> mMessages = new ArrayDeque<>();
+
+        @Override
+        public boolean isCurrentThread() {
+            return true;
+        }
+
+        @Override
+        public void post(Runnable runnable) {
+            mMessages.offer(runnable);
+        }
+
+        void runNext() {
+            mMessages.poll().run();
+        }
+
+        void runAll() {
+            while (!mMessages.isEmpty()) {
+                runNext();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,314 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.BackgroundTask;
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.Priority;
+import com.raycoarana.tesela.QueueLimit;
+import com.raycoarana.tesela.Tesela;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PooledTeselaExecutorTest {
+
+    private final List<String> mEvents = Collections.synchronizedList(new ArrayList<String>());
+    private ExecutorService mWorkerPool;
+    private TestExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mWorkerPool = Executors.newSingleThreadExecutor();
+        mExecutor = new TestExecutor(mWorkerPool);
+        Tesela.init(mExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        mWorkerPool.shutdownNow();
+    }
+
+    @Test
+    public void runsOverflowingWorkOnABackgroundCaller() throws Exception {
+        QueueLimit limit = new QueueLimit(1, Overflow.CALLER_RUNS);
+        CountDownLatch release = holdTag(limit);
+        RecordingTask queued = submit("queued", limit);
+        RecordingTask overflowing = submit("overflowing", limit);
+
+        release.countDown();
+        assertTrue(queued.mFinished.await(5, TimeUnit.SECONDS));
+        assertTrue(overflowing.mFinished.await(5, TimeUnit.SECONDS));
+        assertEquals(asList("run:overflowing", "run:queued"), mEvents);
+        assertEquals(1, mExecutor.getCallerRunsCount());
+    }
+
+    @Test
+    public void dropsOverflowingWorkSubmittedFromTheUIThread() throws Exception {
+        QueueLimit limit = new QueueLimit(1, Overflow.BLOCK, 5000);
+        CountDownLatch release = holdTag(limit);
+        RecordingTask queued = submit("queued", limit);
+        mExecutor.mMainCurrentThread = true;
+        long start = System.nanoTime();
+        RecordingTask overflowing = submit("overflowing", limit);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertTrue(overflowing.isCancelled());
+        assertTrue(overflowing.mFinished.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(queued.mFinished.await(5, TimeUnit.SECONDS));
+        assertEquals(asList("run:queued"), mEvents);
+        assertEquals(1, mExecutor.getRejectedCount("tag"));
+        assertEquals(0, mExecutor.getCallerRunsCount());
+    }
+
+    @Test
+    public void cancelsDroppedWorkSoItStillFinishes() throws Exception {
+        QueueLimit limit = new QueueLimit(1, Overflow.DROP_OLDEST);
+        CountDownLatch release = holdTag(limit);
+        RecordingTask oldest = submit("oldest", limit);
+        RecordingTask newest = submit("newest", limit);
+
+        assertTrue(oldest.isCancelled());
+        assertTrue(oldest.mFinished.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(newest.mFinished.await(5, TimeUnit.SECONDS));
+        assertFalse(newest.isCancelled());
+        assertEquals(asList("run:newest"), mEvents);
+    }
+
+    @Test
+    public void keepsRunningOtherWorkWhileACallIsStuck() throws Exception {
+        PriorityExecutor workerPool = new PriorityExecutor(1);
+        try {
+            mExecutor = new TestExecutor(workerPool);
+            Tesela.init(mExecutor);
+            final CountDownLatch release = new CountDownLatch(1);
+            new BackgroundTask(this, "Test.stuck", "none") {
+                @Override
+                protected long getTimeoutMs() {
+                    return 50;
+                }
+
+                @Override
+                protected void doInBackground() {
+                    while (release.getCount() > 0) {
+                        try {
+                            release.await();
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                }
+            }.submitTo(mExecutor);
+
+            RecordingTask other = new RecordingTask("other", null);
+            other.submitTo(mExecutor);
+            assertTrue(other.mFinished.await(5, TimeUnit.SECONDS));
+            assertEquals(1, Tesela.getStuckCount());
+
+            release.countDown();
+        } finally {
+            workerPool.shutdown();
+        }
+    }
+
+    @Test
+    public void runsPoolWorkOnThePoolRegisteredByTheLatestInit() throws Exception {
+        RecordingPool first = new RecordingPool();
+        RecordingPool second = new RecordingPool();
+        Tesela.init(mExecutor, null, Collections.singletonMap("db", first));
+        new PoolTask("db").submitTo(mExecutor);
+
+        Tesela.init(mExecutor, null, Collections.singletonMap("db", second));
+        new PoolTask("db").submitTo(mExecutor);
+        new PoolTask("db").submitTo(mExecutor);
+
+        assertEquals(1, first.mExecutedCount);
+        assertEquals(2, second.mExecutedCount);
+        assertEquals(asList("run:db", "run:db", "run:db"), mEvents);
+    }
+
+    @Test
+    public void forgetsTheCountsOfPoolsReplacedByALaterInit() {
+        QueueLimit limit = new QueueLimit(1, Overflow.DROP_NEWEST);
+        HoldingPool first = new HoldingPool();
+        Tesela.init(mExecutor, null, Collections.singletonMap("db", first));
+        for (int i = 0; i < 3; i++) {
+            new PoolTask("db", limit).submitTo(mExecutor);
+        }
+        assertEquals(2, mExecutor.getRejectedCount());
+
+        Tesela.init(mExecutor, null, Collections.singletonMap("db", new HoldingPool()));
+        assertEquals(0, mExecutor.getRejectedCount());
+        assertEquals(0, mExecutor.getRejectedCount("tag"));
+    }
+
+    @Test
+    public void sharesTheTagsOfAPoolRegisteredWithSeveralNames() {
+        QueueLimit limit = new QueueLimit(1, Overflow.DROP_NEWEST);
+        HoldingPool pool = new HoldingPool();
+        Map<String, Executor> pools = new HashMap<>();
+        pools.put("db", pool);
+        pools.put("disk", pool);
+        Tesela.init(mExecutor, null, pools);
+
+        new PoolTask("db", limit).submitTo(mExecutor);
+        new PoolTask("disk", limit).submitTo(mExecutor);
+        new PoolTask("db", limit).submitTo(mExecutor);
+
+        assertEquals(1, pool.mHeld.size());
+        assertEquals(2, mExecutor.getRejectedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void refusesWorkForAPoolThatIsNotRegistered() {
+        new PoolTask("db").submitTo(mExecutor);
+    }
+
+    /** Runs a task of the tag that waits for the returned latch, once it is running. */
+    private CountDownLatch holdTag(QueueLimit limit) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        new BackgroundTask(this, "Test.hold", "tag", Priority.NORMAL, limit) {
+            @Override
+            protected void doInBackground() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }.submitTo(mExecutor);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private RecordingTask submit(String name, QueueLimit limit) {
+        RecordingTask task = new RecordingTask(name, limit);
+        task.submitTo(mExecutor);
+        return task;
+    }
+
+    private final class RecordingTask extends BackgroundTask {
+
+        private final String mName;
+        private final CountDownLatch mFinished = new CountDownLatch(1);
+
+        private RecordingTask(String name, QueueLimit limit) {
+            super(PooledTeselaExecutorTest.this, "Test." + name, "tag", Priority.NORMAL, limit);
+            mName = name;
+        }
+
+        @Override
+        protected void doInBackground() {
+            mEvents.add("run:" + mName);
+        }
+
+        @Override
+        protected void onFinished() {
+            mFinished.countDown();
+        }
+
+    }
+
+    private final class PoolTask extends BackgroundTask {
+
+        private final String mPool;
+
+        private PoolTask(String pool) {
+            super(PooledTeselaExecutorTest.this, "Test.pool", "none");
+            mPool = pool;
+        }
+
+        private PoolTask(String pool, QueueLimit limit) {
+            super(PooledTeselaExecutorTest.this, "Test.pool", "tag", Priority.NORMAL, limit);
+            mPool = pool;
+        }
+
+        @Override
+        public String getPool() {
+            return mPool;
+        }
+
+        @Override
+        protected void doInBackground() {
+            mEvents.add("run:" + mPool);
+        }
+
+    }
+
+    private static final class RecordingPool implements Executor {
+
+        private int mExecutedCount;
+
+        @Override
+        public void execute(Runnable runnable) {
+            mExecutedCount++;
+            runnable.run();
+        }
+
+    }
+
+    /** Takes work and never runs it. */
+    private static final class HoldingPool implements Executor {
+
+        private final List<Runnable> mHeld = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            mHeld.add(runnable);
+        }
+
+    }
+
+    private static final class TestExecutor extends PooledTeselaExecutor {
+
+        private volatile boolean mMainCurrentThread;
+
+        private TestExecutor(Executor workerPool) {
+            super(workerPool);
+        }
+
+        @Override
+        public boolean isMainCurrentThread() {
+            return mMainCurrentThread;
+        }
+
+        @Override
+        public void executeInUIThread(Runnable runnable) {
+            runnable.run();
+        }
+
+    }
+
+}
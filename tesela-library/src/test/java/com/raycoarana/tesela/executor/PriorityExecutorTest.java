@@ -0,0 +1,124 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.Priority;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PriorityExecutorTest {
+
+    private PriorityExecutor mExecutor;
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void servesHigherPrioritiesFirst() throws Exception {
+        mExecutor = new PriorityExecutor(1, 1000, new WorkerThreadFactory("test-worker"));
+        CountDownLatch release = blockWorker();
+        List<Priority> order = Collections.synchronizedList(new ArrayList<Priority>());
+        CountDownLatch done = new CountDownLatch(4);
+        for (Priority priority : new Priority[]{Priority.IDLE, Priority.LOW, Priority.NORMAL, Priority.HIGH}) {
+            mExecutor.execute(new RecordingRunnable<>(priority, order, done), priority);
+        }
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(Priority.HIGH, Priority.NORMAL, Priority.LOW, Priority.IDLE), order);
+    }
+
+    @Test
+    public void servesEqualPrioritiesInArrivalOrder() throws Exception {
+        mExecutor = new PriorityExecutor(1, 1000, new WorkerThreadFactory("test-worker"));
+        CountDownLatch release = blockWorker();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            mExecutor.execute(new RecordingRunnable<>(i, order, done), Priority.LOW);
+        }
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), order);
+    }
+
+    @Test
+    public void servesLowPriorityWorkThatWaitedLongEnoughBeforeNewHighPriorityWork() throws Exception {
+        mExecutor = new PriorityExecutor(1, 5, new WorkerThreadFactory("test-worker"));
+        CountDownLatch release = blockWorker();
+        List<Priority> order = Collections.synchronizedList(new ArrayList<Priority>());
+        CountDownLatch done = new CountDownLatch(2);
+        mExecutor.execute(new RecordingRunnable<>(Priority.LOW, order, done), Priority.LOW);
+        Thread.sleep(100);
+        mExecutor.execute(new RecordingRunnable<>(Priority.HIGH, order, done), Priority.HIGH);
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(Priority.LOW, Priority.HIGH), order);
+    }
+
+    private CountDownLatch blockWorker() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, Priority.HIGH);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static final class RecordingRunnable<T> implements Runnable {
+
+        private final T mValue;
+        private final List<T> mOrder;
+        private final CountDownLatch mDone;
+
+        private RecordingRunnable(T value, List<T> order, CountDownLatch done) {
+            mValue = value;
+            mOrder = order;
+            mDone = done;
+        }
+
+        @Override
+        public void run() {
+            mOrder.add(mValue);
+            mDone.countDown();
+        }
+
+    }
+
+}
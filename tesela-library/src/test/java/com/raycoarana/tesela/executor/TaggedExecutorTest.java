@@ -0,0 +1,349 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.executor;
+
+import com.raycoarana.tesela.Overflow;
+import com.raycoarana.tesela.Priority;
+import com.raycoarana.tesela.QueueLimit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaggedExecutorTest {
+
+    private ExecutorService mWorkerPool;
+    private TaggedExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mWorkerPool = Executors.newFixedThreadPool(4);
+        mExecutor = new TaggedExecutor(mWorkerPool);
+    }
+
+    @After
+    public void tearDown() {
+        mWorkerPool.shutdownNow();
+    }
+
+    @Test
+    public void runsWorkWithTheSameTagInOrderAndOneAtATime() throws Exception {
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int value = i;
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    int current = running.incrementAndGet();
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                    order.add(value);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }, "tag");
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void runsDifferentTagsInParallel() throws Exception {
+        final CountDownLatch bothRunning = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(2);
+        for (String tag : new String[]{"a", "b"}) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    bothRunning.countDown();
+                    try {
+                        if (bothRunning.await(5, TimeUnit.SECONDS)) {
+                            done.countDown();
+                        }
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            }, tag);
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void removesTheLaneWhenItsTagHasNoMoreWork() throws Exception {
+        final CountDownLatch done = new CountDownLatch(1);
+        mExecutor.execute(new CountDownRunnable(done), "tag");
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        waitForNoActiveLanes();
+    }
+
+    @Test
+    public void releasesTheLaneWhenTheWorkerPoolRefusesIt() throws Exception {
+        RefusingExecutor workerPool = new RefusingExecutor(mWorkerPool);
+        mExecutor = new TaggedExecutor(workerPool);
+
+        workerPool.mRefuse = true;
+        try {
+            mExecutor.execute(new CountDownRunnable(new CountDownLatch(1)), "tag");
+            fail();
+        } catch (RejectedExecutionException expected) {
+        }
+        assertEquals(0, mExecutor.getActiveLaneCount());
+
+        workerPool.mRefuse = false;
+        CountDownLatch done = new CountDownLatch(1);
+        mExecutor.execute(new CountDownRunnable(done), "tag");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void dropsTheNewestWorkWhenTheTagIsFull() throws Exception {
+        List<String> ran = fillLane(new QueueLimit(2, Overflow.DROP_NEWEST), true);
+
+        assertEquals(asList("a", "b"), ran);
+        assertEquals(1, mExecutor.getRejectedCount("tag"));
+        assertEquals(0, mExecutor.getRejectedCount("other"));
+    }
+
+    @Test
+    public void dropsTheOldestWorkWhenTheTagIsFull() throws Exception {
+        List<String> ran = fillLane(new QueueLimit(2, Overflow.DROP_OLDEST), true);
+
+        assertEquals(asList("b", "c"), ran);
+        assertEquals(1, mExecutor.getRejectedCount());
+    }
+
+    @Test
+    public void runsOnTheCallerWhenTheTagIsFull() throws Exception {
+        List<String> ran = fillLane(new QueueLimit(2, Overflow.CALLER_RUNS), true);
+
+        assertEquals(asList("c:caller", "a", "b"), ran);
+        assertEquals(1, mExecutor.getCallerRunsCount());
+        assertEquals(0, mExecutor.getRejectedCount());
+    }
+
+    @Test
+    public void dropsInsteadOfRunningOnACallerThatCantWait() throws Exception {
+        List<String> ran = fillLane(new QueueLimit(2, Overflow.CALLER_RUNS), false);
+
+        assertEquals(asList("a", "b"), ran);
+        assertEquals(0, mExecutor.getCallerRunsCount());
+        assertEquals(1, mExecutor.getRejectedCount("tag"));
+    }
+
+    @Test
+    public void dropsAfterWaitingForRoomUntilTheTimeout() throws Exception {
+        long start = System.nanoTime();
+        List<String> ran = fillLane(new QueueLimit(2, Overflow.BLOCK, 50), true);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(asList("a", "b"), ran);
+        assertEquals(1, mExecutor.getRejectedCount("tag"));
+    }
+
+    @Test
+    public void dropsInsteadOfWaitingOnACallerThatCantWait() throws Exception {
+        long start = System.nanoTime();
+        List<String> ran = fillLane(new QueueLimit(2, Overflow.BLOCK, 5000), false);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(asList("a", "b"), ran);
+        assertEquals(1, mExecutor.getRejectedCount("tag"));
+    }
+
+    @Test
+    public void queuesWorkOnceTheTagHasRoom() throws Exception {
+        QueueLimit limit = new QueueLimit(1, Overflow.BLOCK, 5000);
+        final Gate gate = new Gate();
+        mExecutor.execute(gate, "tag", Priority.NORMAL, limit);
+        assertTrue(gate.mStarted.await(5, TimeUnit.SECONDS));
+        final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch done = new CountDownLatch(2);
+        mExecutor.execute(new Record(ran, "a", done), "tag", Priority.NORMAL, limit);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                gate.mRelease.countDown();
+            }
+        }).start();
+        mExecutor.execute(new Record(ran, "b", done), "tag", Priority.NORMAL, limit);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(asList("a", "b"), ran);
+        assertEquals(0, mExecutor.getRejectedCount());
+    }
+
+    @Test
+    public void boundsAllPendingWorkWithTheGlobalLimit() throws Exception {
+        ExecutorService workerPool = Executors.newSingleThreadExecutor();
+        try {
+            mExecutor = new TaggedExecutor(workerPool, new QueueLimit(2, Overflow.DROP_NEWEST));
+            Gate gate = new Gate();
+            mExecutor.execute(gate);
+            assertTrue(gate.mStarted.await(5, TimeUnit.SECONDS));
+            List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+            CountDownLatch done = new CountDownLatch(2);
+            mExecutor.execute(new Record(ran, "a", done));
+            mExecutor.execute(new Record(ran, "b", done), "tag");
+            mExecutor.execute(new Record(ran, "c", done), "other");
+
+            gate.mRelease.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(asList("a", "b"), ran);
+            assertEquals(1, mExecutor.getRejectedCount());
+            assertEquals(1, mExecutor.getRejectedCount("other"));
+        } finally {
+            workerPool.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refusesAGlobalLimitDroppingTheOldestWork() {
+        new TaggedExecutor(mWorkerPool, new QueueLimit(1, Overflow.DROP_OLDEST));
+    }
+
+    /**
+     * Submits "a", "b" and "c" to a lane held by a running task, then lets it go and returns what
+     * ran, with the work run on the caller marked as such.
+     */
+    private List<String> fillLane(QueueLimit limit, boolean callerMayWait) throws InterruptedException {
+        Gate gate = new Gate();
+        mExecutor.execute(gate, "tag", Priority.NORMAL, limit, callerMayWait);
+        assertTrue(gate.mStarted.await(5, TimeUnit.SECONDS));
+
+        final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+        final Thread caller = Thread.currentThread();
+        for (final String value : new String[]{"a", "b", "c"}) {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ran.add(Thread.currentThread() == caller ? value + ":caller" : value);
+                }
+            }, "tag", Priority.NORMAL, limit, callerMayWait);
+        }
+
+        gate.mRelease.countDown();
+        waitForNoActiveLanes();
+        return ran;
+    }
+
+    private void waitForNoActiveLanes() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mExecutor.getActiveLaneCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, mExecutor.getActiveLaneCount());
+    }
+
+    private static final class CountDownRunnable implements Runnable {
+
+        private final CountDownLatch mLatch;
+
+        private CountDownRunnable(CountDownLatch latch) {
+            mLatch = latch;
+        }
+
+        @Override
+        public void run() {
+            mLatch.countDown();
+        }
+
+    }
+
+    private static final class Gate implements Runnable {
+
+        private final CountDownLatch mStarted = new CountDownLatch(1);
+        private final CountDownLatch mRelease = new CountDownLatch(1);
+
+        @Override
+        public void run() {
+            mStarted.countDown();
+            try {
+                mRelease.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        }
+
+    }
+
+    private static final class Record implements Runnable {
+
+        private final List<String> mRan;
+        private final String mValue;
+        private final CountDownLatch mDone;
+
+        private Record(List<String> ran, String value, CountDownLatch done) {
+            mRan = ran;
+            mValue = value;
+            mDone = done;
+        }
+
+        @Override
+        public void run() {
+            mRan.add(mValue);
+            mDone.countDown();
+        }
+
+    }
+
+    private static final class RefusingExecutor implements Executor {
+
+        private final Executor mExecutor;
+        private volatile boolean mRefuse;
+
+        private RefusingExecutor(Executor executor) {
+            mExecutor = executor;
+        }
+
+        @Override
+        public void execute(Runnable runnable) {
+            if (mRefuse) {
+                throw new RejectedExecutionException("Refused");
+            }
+            mExecutor.execute(runnable);
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.monitor;
+
+import com.raycoarana.tesela.BackgroundTask;
+import com.raycoarana.tesela.InlineTeselaExecutor;
+import com.raycoarana.tesela.Tesela;
+import com.raycoarana.tesela.TeselaExecutor;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramMonitorTest {
+
+    private final HistogramMonitor mMonitor = new HistogramMonitor();
+
+    @After
+    public void tearDown() {
+        Tesela.init(new InlineTeselaExecutor());
+    }
+
+    @Test
+    public void keepsQueueWaitAndExecutionPerMethod() {
+        mMonitor.onBackgroundCallFinished("MainPresenter.load", "none", 100, 300, 1300);
+        mMonitor.onBackgroundCallFinished("MainPresenter.load", "none", 100, 100, 100);
+        mMonitor.onUICallFinished("MainPresenter.show", 0, 50, 60);
+
+        Map<String, HistogramMonitor.Snapshot> snapshot = mMonitor.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals(2, snapshot.get("MainPresenter.load").getQueueWait().getCount());
+        assertEquals(200, snapshot.get("MainPresenter.load").getQueueWait().getMax());
+        assertEquals(1000, snapshot.get("MainPresenter.load").getExecution().getMax());
+        assertEquals(50, snapshot.get("MainPresenter.show").getQueueWait().getMax());
+    }
+
+    @Test
+    public void keepsTaggedCallsApart() {
+        mMonitor.onBackgroundCallFinished("MainPresenter.load", "none", 0, 0, 1);
+        mMonitor.onBackgroundCallFinished("MainPresenter.load", "sync", 0, 0, 1);
+
+        Map<String, HistogramMonitor.Snapshot> snapshot = mMonitor.snapshot();
+        assertTrue(snapshot.containsKey("MainPresenter.load"));
+        assertTrue(snapshot.containsKey("MainPresenter.load [sync]"));
+    }
+
+    @Test
+    public void isToldOfEveryBackgroundTask() {
+        TeselaExecutor executor = new InlineTeselaExecutor();
+        Tesela.init(executor, mMonitor);
+        new BackgroundTask(new Object(), "MainPresenter.load", "sync") {
+            @Override
+            protected void doInBackground() {
+            }
+        }.submitTo(executor);
+
+        HistogramMonitor.Snapshot snapshot = mMonitor.snapshot().get("MainPresenter.load [sync]");
+        assertEquals(1, snapshot.getExecution().getCount());
+    }
+
+}
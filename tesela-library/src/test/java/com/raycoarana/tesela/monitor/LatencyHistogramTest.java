@@ -0,0 +1,88 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.monitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void countsSmallValuesExactly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(8, snapshot.getCount());
+        assertEquals(3, snapshot.getPercentile(50));
+        assertEquals(7, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void keepsEveryValueWithinItsBucketError() {
+        for (long value = 8; value < 1L << 40; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            long highest = LatencyHistogram.highestValueOf(index);
+            assertTrue(value + " > " + highest, value <= highest);
+            assertTrue(value + " not within 12.5% of " + highest, highest - value <= value / 8);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestValueOf(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void reportsPercentilesMeanAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(50500, snapshot.getMean());
+        assertEquals(100000, snapshot.getMax());
+        assertWithinError(50000, snapshot.getPercentile(50));
+        assertWithinError(99000, snapshot.getPercentile(99));
+        assertEquals(100000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void countsNegativeValuesAsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertEquals(0, histogram.snapshot().getMax());
+        assertEquals(0, histogram.snapshot().getPercentile(100));
+    }
+
+    @Test
+    public void reportsZeroWhileEmpty() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getMean());
+        assertEquals(0, snapshot.getPercentile(99));
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue(actual + " not within 12.5% of " + expected, actual >= expected && actual - expected <= expected / 8);
+    }
+
+}
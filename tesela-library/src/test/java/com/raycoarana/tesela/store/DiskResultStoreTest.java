@@ -0,0 +1,245 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.store;
+
+import com.raycoarana.tesela.StoredResult;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskResultStoreTest {
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private DiskResultStore mStore;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = new File(mFolder.getRoot(), "results");
+        mStore = new DiskResultStore(mFile);
+    }
+
+    @After
+    public void tearDown() {
+        mStore.close();
+    }
+
+    @Test
+    public void returnsStoredResultsWithTheirTime() {
+        long before = System.currentTimeMillis();
+        mStore.put("a", "A");
+
+        StoredResult result = mStore.get("a");
+        assertEquals("A", result.getValue());
+        assertTrue(result.getStoredAt() >= before);
+        assertNull(mStore.get("b"));
+    }
+
+    @Test
+    public void returnsTheLatestResultOfAKey() {
+        mStore.put("a", "A1");
+        mStore.put("a", "A2");
+
+        assertEquals("A2", mStore.get("a").getValue());
+    }
+
+    @Test
+    public void keepsResultsOnceReopened() {
+        mStore.put("a", "A1");
+        mStore.put("b", "B");
+        mStore.put("a", "A2");
+        reopen();
+
+        assertEquals("A2", mStore.get("a").getValue());
+        assertEquals("B", mStore.get("b").getValue());
+    }
+
+    @Test
+    public void readsResultsAppendedAfterTheFileWasMapped() {
+        for (int i = 0; i < 200; i++) {
+            mStore.put("key" + i, "value" + i);
+            assertEquals("value" + i, mStore.get("key" + i).getValue());
+            assertEquals("value0", mStore.get("key0").getValue());
+        }
+    }
+
+    @Test
+    public void keepsOnlyLiveResultsOnceCompacted() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            mStore.put("a", "A" + i);
+            mStore.put("b", "B" + i);
+        }
+        long size = mFile.length();
+        mStore.compact();
+
+        assertTrue(mFile.length() < size / 10);
+        assertEquals("A99", mStore.get("a").getValue());
+        assertEquals("B99", mStore.get("b").getValue());
+        assertFalse(new File(mFile.getPath() + ".backup").exists());
+        reopen();
+        assertEquals("A99", mStore.get("a").getValue());
+    }
+
+    @Test
+    public void compactsOnItsOwnOnceMostOfTheFileIsSuperseded() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 1024; i++) {
+            value.append('x');
+        }
+        for (int i = 0; i < 200; i++) {
+            mStore.put("a", value.toString() + i);
+        }
+
+        assertTrue(mFile.length() < 200 * 1024);
+        assertEquals(value.toString() + 199, mStore.get("a").getValue());
+    }
+
+    @Test
+    public void dropsARecordTornByACrash() throws IOException {
+        mStore.put("a", "A");
+        mStore.close();
+        FileOutputStream output = new FileOutputStream(mFile, true);
+        try {
+            output.write(new byte[]{0, 0, 0, 5, 0, 0, 1, 0, 0});
+        } finally {
+            output.close();
+        }
+        reopen();
+
+        assertEquals("A", mStore.get("a").getValue());
+        mStore.put("b", "B");
+        reopen();
+        assertEquals("B", mStore.get("b").getValue());
+    }
+
+    @Test
+    public void restoresTheBackupLeftByAnInterruptedCompaction() {
+        mStore.put("a", "A");
+        mStore.close();
+        assertTrue(mFile.renameTo(new File(mFile.getPath() + ".backup")));
+        reopen();
+
+        assertEquals("A", mStore.get("a").getValue());
+    }
+
+    @Test
+    public void reportsAFailedPutAndKeepsStoringAfterIt() {
+        RecordingListener listener = new RecordingListener();
+        mStore.close();
+        mStore = new DiskResultStore(mFile, new FailingSerializer(), listener);
+        mStore.put("a", "A");
+        mStore.put("broken", FailingSerializer.BROKEN);
+        mStore.put("b", "B");
+
+        assertEquals(asList("write:broken"), listener.mFailures);
+        assertEquals("A", mStore.get("a").getValue());
+        assertEquals("B", mStore.get("b").getValue());
+        assertNull(mStore.get("broken"));
+    }
+
+    @Test
+    public void reportsAFileItCantOpenUntilItCan() {
+        RecordingListener listener = new RecordingListener();
+        File directory = new File(mFolder.getRoot(), "missing");
+        mStore.close();
+        mStore = new DiskResultStore(new File(directory, "results"), new SerializableResultSerializer(), listener);
+        mStore.put("a", "A");
+        assertNull(mStore.get("a"));
+
+        assertTrue(directory.mkdir());
+        mStore.put("b", "B");
+
+        assertEquals(asList("write:a", "read:a"), listener.mFailures);
+        assertEquals("B", mStore.get("b").getValue());
+    }
+
+    @Test
+    public void reportsAResultItCantReadAsAMiss() {
+        RecordingListener listener = new RecordingListener();
+        mStore.close();
+        mStore = new DiskResultStore(mFile, new FailingSerializer(), listener);
+        mStore.put("a", FailingSerializer.UNREADABLE);
+
+        assertNull(mStore.get("a"));
+        assertEquals(asList("read:a"), listener.mFailures);
+    }
+
+    private void reopen() {
+        mStore.close();
+        mStore = new DiskResultStore(mFile);
+    }
+
+    private static final class RecordingListener implements StoreFailureListener {
+
+        private final List<String> mFailures = new ArrayList<>();
+
+        @Override
+        public void onReadFailed(String key, IOException e) {
+            mFailures.add("read:" + key);
+        }
+
+        @Override
+        public void onWriteFailed(String key, IOException e) {
+            mFailures.add("write:" + key);
+        }
+
+    }
+
+    /** Can't serialize {@link #BROKEN} and can't read {@link #UNREADABLE} back. */
+    private static final class FailingSerializer implements ResultSerializer {
+
+        private static final String BROKEN = "broken";
+        private static final String UNREADABLE = "unreadable";
+
+        private final ResultSerializer mSerializer = new SerializableResultSerializer();
+
+        @Override
+        public byte[] serialize(Object value) throws IOException {
+            if (BROKEN.equals(value)) {
+                throw new IOException("Can't serialize " + value);
+            }
+            return mSerializer.serialize(value);
+        }
+
+        @Override
+        public Object deserialize(byte[] data) throws IOException {
+            Object value = mSerializer.deserialize(data);
+            if (UNREADABLE.equals(value)) {
+                throw new IOException("Can't deserialize " + value);
+            }
+            return value;
+        }
+
+    }
+
+}
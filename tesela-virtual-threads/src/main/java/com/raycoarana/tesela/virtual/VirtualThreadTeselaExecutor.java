@@ -0,0 +1,51 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.virtual;
+
+import com.raycoarana.tesela.executor.PooledTeselaExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs every @Background invocation on its own virtual thread, so blocking work doesn't need a
+ * sized pool. Tagged work is still serialized per tag. Priorities are ignored because there is
+ * no queue to order. Subclasses provide the UI thread half.
+ */
+public abstract class VirtualThreadTeselaExecutor extends PooledTeselaExecutor implements AutoCloseable {
+
+    private final ExecutorService mVirtualThreadExecutor;
+
+    public VirtualThreadTeselaExecutor() {
+        this(Thread.ofVirtual().name("tesela-virtual-", 0).factory());
+    }
+
+    public VirtualThreadTeselaExecutor(ThreadFactory virtualThreadFactory) {
+        this(Executors.newThreadPerTaskExecutor(virtualThreadFactory));
+    }
+
+    private VirtualThreadTeselaExecutor(ExecutorService virtualThreadExecutor) {
+        super(virtualThreadExecutor);
+        mVirtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    @Override
+    public void close() {
+        mVirtualThreadExecutor.close();
+    }
+
+}
@@ -0,0 +1,114 @@
+/*
+    Copyright 2016 Rayco Araña
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.raycoarana.tesela.virtual;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadTeselaExecutorTest {
+
+    private VirtualThreadTeselaExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = new VirtualThreadTeselaExecutor() {
+            @Override
+            public boolean isMainCurrentThread() {
+                return false;
+            }
+
+            @Override
+            public void executeInUIThread(Runnable runnable) {
+                runnable.run();
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.close();
+    }
+
+    @Test
+    public void runsBackgroundWorkOnAVirtualThread() throws Exception {
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        mExecutor.executeInBackground(new Runnable() {
+            @Override
+            public void run() {
+                thread.set(Thread.currentThread());
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(thread.get().isVirtual());
+    }
+
+    @Test
+    public void runsBlockingWorkWithoutASizedPool() throws Exception {
+        final CountDownLatch allRunning = new CountDownLatch(1000);
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            mExecutor.executeInBackground(new Runnable() {
+                @Override
+                public void run() {
+                    allRunning.countDown();
+                    try {
+                        if (allRunning.await(5, TimeUnit.SECONDS)) {
+                            done.countDown();
+                        }
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void runsWorkWithTheSameTagOneAtATime() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            mExecutor.executeInBackground(new Runnable() {
+                @Override
+                public void run() {
+                    int current = running.incrementAndGet();
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                    Thread.yield();
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            }, "tag");
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maxRunning.get());
+    }
+
+}